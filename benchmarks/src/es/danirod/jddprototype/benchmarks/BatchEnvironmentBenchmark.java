@@ -0,0 +1,84 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package es.danirod.jddprototype.benchmarks;
+
+import com.badlogic.gdx.math.RandomXS128;
+import es.danirod.jddprototype.game.Constants;
+import es.danirod.jddprototype.game.simulation.BatchEnvironment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How many batch steps per second can the BatchEnvironment do? Multiply the score by the
+ * amount of instances to get game steps per second. The actions are random, like a bot that
+ * has not learned anything yet, so games end and restart often.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchEnvironmentBenchmark {
+
+    @Param({"64", "512"})
+    public int instances;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private BatchEnvironment environment;
+
+    private final RandomXS128 random = new RandomXS128(0);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        environment = new BatchEnvironment(instances, threads, Constants.LEVEL_SEED, 10, 60 * 60);
+        environment.reset();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        environment.dispose();
+    }
+
+    @Benchmark
+    public float step() {
+        FloatBuffer actions = environment.getActions();
+        for (int i = 0; i < instances; i++) {
+            actions.put(i, random.nextInt(30) == 0 ? 1 : 0);
+        }
+        environment.step();
+        return environment.getRewards().get(0);
+    }
+}
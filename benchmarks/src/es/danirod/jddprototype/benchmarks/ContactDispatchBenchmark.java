@@ -0,0 +1,121 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package es.danirod.jddprototype.benchmarks;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.World;
+import es.danirod.jddprototype.box2d.Box2DTracker;
+import es.danirod.jddprototype.game.Constants;
+import es.danirod.jddprototype.game.entities.CollisionCategory;
+import es.danirod.jddprototype.game.entities.EntityFactory;
+import es.danirod.jddprototype.game.simulation.ContactDispatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How many contacts per second can the ContactDispatcher queue and dispatch? Every operation
+ * drops a number of players on a floor and lifts them again, so that there is a begin contact
+ * and an end contact for every player. The time includes the two steps of the world, so
+ * compare the results against WorldStepBenchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContactDispatchBenchmark {
+
+    /** How many players touch the floor at the same time. */
+    @Param({"1", "16", "128"})
+    public int contacts;
+
+    private World world;
+    private Box2DTracker tracker;
+
+    private ContactDispatcher dispatcher;
+
+    private Body[] players;
+
+    /** How many events have been dispatched, so that the JIT cannot remove the handler. */
+    private int events;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // No gravity, the players are moved by hand.
+        world = new World(new Vector2(0, 0), true);
+        tracker = new Box2DTracker(world);
+        dispatcher = new ContactDispatcher();
+        world.setContactListener(dispatcher);
+        dispatcher.register(CollisionCategory.PLAYER, CollisionCategory.FLOOR, new ContactDispatcher.Handler() {
+            @Override
+            public void beginContact(Fixture first, Fixture second) {
+                events++;
+            }
+
+            @Override
+            public void endContact(Fixture first, Fixture second) {
+                events++;
+            }
+        });
+
+        EntityFactory factory = new EntityFactory();
+        factory.createFloor(tracker, 0, contacts * 2 + 1, 1);
+        players = new Body[contacts];
+        for (int i = 0; i < contacts; i++) {
+            players[i] = factory.createPlayer(tracker, new Vector2(1.5f + i * 2, 10)).getBody();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        world.dispose();
+    }
+
+    @Benchmark
+    public int cycle() {
+        move(0.5f);     // Inside the floor: begin contact.
+        move(10);       // Far away: end contact.
+        return events;
+    }
+
+    private void move(float y) {
+        for (int i = 0; i < players.length; i++) {
+            players[i].setTransform(1.5f + i * 2, y, 0);
+            players[i].setLinearVelocity(0, 0);
+        }
+        world.step(Constants.STEP_TIME, 6, 2);
+        dispatcher.dispatch();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package es.danirod.jddprototype.benchmarks;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.World;
+import es.danirod.jddprototype.box2d.Box2DTracker;
+import es.danirod.jddprototype.game.entities.EntityFactory;
+import es.danirod.jddprototype.game.entities.EntityPool;
+import es.danirod.jddprototype.game.entities.FloorEntity;
+import es.danirod.jddprototype.game.entities.SpikeEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How expensive is it to bring a floor and a spike into the world and take them out again?
+ * This compares creating new entities with the EntityFactory and destroying their bodies
+ * against reusing parked entities from the EntityPool.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityLifecycleBenchmark {
+
+    private World world;
+    private Box2DTracker tracker;
+
+    private EntityFactory factory;
+
+    private EntityPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        world = new World(new Vector2(0, -10), true);
+        tracker = new Box2DTracker(world);
+        factory = new EntityFactory();
+        pool = new EntityPool(factory, tracker);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.clear();
+        world.dispose();
+    }
+
+    @Benchmark
+    public void factory() {
+        FloorEntity floor = factory.createFloor(tracker, 10, 8, 2);
+        SpikeEntity spike = factory.createSpikes(tracker, 16, 2);
+        spike.detach();
+        floor.detach();
+    }
+
+    @Benchmark
+    public void pool() {
+        FloorEntity floor = pool.obtainFloor(10, 8, 2);
+        SpikeEntity spike = pool.obtainSpikes(16, 2);
+        pool.free(spike);
+        pool.free(floor);
+    }
+}
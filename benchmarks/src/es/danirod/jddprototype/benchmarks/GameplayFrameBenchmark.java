@@ -0,0 +1,83 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package es.danirod.jddprototype.benchmarks;
+
+import es.danirod.jddprototype.game.entities.EntityFactory;
+import es.danirod.jddprototype.game.simulation.GameSimulation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole gameplay frame: streaming the level, moving the player, stepping the world and
+ * dispatching the contacts. The player jumps every now and then and the game is restarted
+ * when the player dies, like somebody playing the game.
+ *
+ * Run it with the gc profiler (the jmh task already does) and look at gc.alloc.rate.norm:
+ * it is the amount of bytes allocated per frame, and it should be as close to 0 as possible.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameplayFrameBenchmark {
+
+    /** Jump once every this amount of frames. */
+    private static final int JUMP_EVERY = 45;
+
+    private GameSimulation simulation;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        simulation = new GameSimulation(new EntityFactory());
+        simulation.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        simulation.stop();
+        simulation.dispose();
+    }
+
+    @Benchmark
+    public int frame() {
+        if (!simulation.getPlayer().isAlive()) {
+            simulation.stop();
+            simulation.start();
+        }
+        if (simulation.getTicks() % JUMP_EVERY == 0) {
+            simulation.pressJump();
+        }
+        simulation.tick();
+        return simulation.getTicks();
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package es.danirod.jddprototype.benchmarks;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.World;
+import es.danirod.jddprototype.box2d.Box2DTracker;
+import es.danirod.jddprototype.game.Constants;
+import es.danirod.jddprototype.game.entities.EntityFactory;
+import es.danirod.jddprototype.game.entities.PlayerEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long does a single physics step take depending on how many floors and spikes there are
+ * in the world? Half of the entities are floors laid one after the other and the other half
+ * are spikes on top of them. There is a single player running over them, like in the game.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorldStepBenchmark {
+
+    /** How many floors and spikes are in the world. */
+    @Param({"10", "100", "1000", "10000"})
+    public int entities;
+
+    private World world;
+    private Box2DTracker tracker;
+
+    private PlayerEntity player;
+
+    private final Vector2 start = new Vector2(1.5f, 1.5f);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        world = new World(new Vector2(0, -10), true);
+        tracker = new Box2DTracker(world);
+        EntityFactory factory = new EntityFactory();
+        for (int i = 0; i < entities / 2; i++) {
+            factory.createFloor(tracker, i * 8, 8, 1);
+            factory.createSpikes(tracker, i * 8 + 6, 1);
+        }
+        player = factory.createPlayer(tracker, start);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPlayer() {
+        // Every iteration starts with the player at the beginning of the level.
+        player.place(start);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        world.dispose();
+    }
+
+    @Benchmark
+    public void step() {
+        player.tick();
+        world.step(Constants.STEP_TIME, 6, 2);
+    }
+}
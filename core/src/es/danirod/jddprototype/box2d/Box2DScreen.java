@@ -44,6 +44,9 @@ public class Box2DScreen extends es.danirod.jddprototype.game.BaseScreen {
     /** World instance. Everything in Box2D has to be added to the world. */
     private World world;
 
+    /** Counts the bodies and fixtures of the world. */
+    private Box2DTracker tracker;
+
     /** Debug renderer. It renders worlds to the screen to make it possible to see them. */
     private Box2DDebugRenderer renderer;
 
@@ -59,6 +62,12 @@ public class Box2DScreen extends es.danirod.jddprototype.game.BaseScreen {
     /** Some variables that could be encapsulated if this had been a better example. */
     private boolean mustJump, isJumping, isAlive = true;
 
+    /** Counters about the world. Logged from time to time when debugging. */
+    private PhysicsStats stats = new PhysicsStats();
+
+    /** Seconds since the stats were logged for the last time. */
+    private float statsLogTime;
+
     @Override
     public void show() {
         // Create the world. We give it some gravity that is similar to the one used in the earth.
@@ -66,6 +75,7 @@ public class Box2DScreen extends es.danirod.jddprototype.game.BaseScreen {
         // by using y = -10, we make gravity go down. If you look at your physics book, it is
         // the same.
         world = new World(new Vector2(0, -10), true);
+        tracker = new Box2DTracker(world);
 
         // Create a renderer and a camera to make it possible for us to see what is in the world.
         renderer = new Box2DDebugRenderer();
@@ -73,14 +83,14 @@ public class Box2DScreen extends es.danirod.jddprototype.game.BaseScreen {
         camera.translate(0, 1);
 
         // Create the bodies for entities in this world.
-        minijoeBody = world.createBody(BodyDefFactory.createPlayer());
-        floorBody = world.createBody(BodyDefFactory.createFloor());
-        spikeBody = world.createBody(BodyDefFactory.createSpikes(6f));
+        minijoeBody = tracker.createBody(BodyDefFactory.createPlayer(), "player");
+        floorBody = tracker.createBody(BodyDefFactory.createFloor(), "floor");
+        spikeBody = tracker.createBody(BodyDefFactory.createSpikes(6f), "spike");
 
         // Create the fixture for the entities in this world.
-        minijoeFixture = FixtureFactory.createPlayerFixture(minijoeBody);
-        floorFixture = FixtureFactory.createFloorFixture(floorBody);
-        spikeFixture = FixtureFactory.createSpikeFixture(spikeBody);
+        minijoeFixture = FixtureFactory.createPlayerFixture(tracker, minijoeBody);
+        floorFixture = FixtureFactory.createFloorFixture(tracker, floorBody);
+        spikeFixture = FixtureFactory.createSpikeFixture(tracker, spikeBody);
 
         // Set the user data to some categories that will let us handle collisions in a more
         // generic way. Player can collide with floor and with spike.
@@ -95,14 +105,14 @@ public class Box2DScreen extends es.danirod.jddprototype.game.BaseScreen {
     @Override
     public void dispose() {
         // Destroy all the fixtures from their bodies.
-        floorBody.destroyFixture(floorFixture);
-        minijoeBody.destroyFixture(minijoeFixture);
-        spikeBody.destroyFixture(spikeFixture);
+        tracker.destroyFixture(floorBody, floorFixture);
+        tracker.destroyFixture(minijoeBody, minijoeFixture);
+        tracker.destroyFixture(spikeBody, spikeFixture);
 
         // Destroy all the bodies from their world.
-        world.destroyBody(minijoeBody);
-        world.destroyBody(floorBody);
-        world.destroyBody(spikeBody);
+        tracker.destroyBody(minijoeBody);
+        tracker.destroyBody(floorBody);
+        tracker.destroyBody(spikeBody);
 
         // Dispose all the things.
         world.dispose();
@@ -133,8 +143,13 @@ public class Box2DScreen extends es.danirod.jddprototype.game.BaseScreen {
             minijoeBody.setLinearVelocity(8, velocidadY);
         }
 
-        // Iterate the world.
-        world.step(delta, 6, 2);
+        // Iterate the world. The stats measure how long it takes.
+        stats.step(world, delta, 6, 2);
+        statsLogTime += delta;
+        if (statsLogTime > 5) {
+            statsLogTime = 0;
+            Gdx.app.debug("Box2DScreen", stats.toString());
+        }
 
         // Render the world.
         camera.update();
@@ -153,6 +168,8 @@ public class Box2DScreen extends es.danirod.jddprototype.game.BaseScreen {
     private class Box2DScreenContactListener implements ContactListener {
         @Override
         public void beginContact(Contact contact) {
+            stats.beginContact();
+
             // Get the fixtures.
             Fixture fixtureA = contact.getFixtureA(), fixtureB = contact.getFixtureB();
 
@@ -186,6 +203,8 @@ public class Box2DScreen extends es.danirod.jddprototype.game.BaseScreen {
 
         @Override
         public void endContact(Contact contact) {
+            stats.endContact();
+
             // End the collision.
             Fixture fixtureA = contact.getFixtureA(), fixtureB = contact.getFixtureB();
 
@@ -0,0 +1,233 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package es.danirod.jddprototype.box2d;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.Shape;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.ObjectIntMap;
+
+/**
+ * Counts the bodies and fixtures that are alive on the native side of Box2D. If you create
+ * bodies and fixtures using this class instead of using the world directly, you can know how
+ * many of them there are for every owner (player, floor, spike...). If you forget to destroy
+ * some body, the counters won't go back to the value they had before, and that is a leak.
+ *
+ * There is a tracker for every world, so the counters can be compared with the world and
+ * simulations running in other threads don't touch them. Like the world itself, a tracker
+ * has to be used from a single thread, so it doesn't lock anything.
+ *
+ * The owner of a body is stored as the user data of the body, so that it is known when the
+ * body is destroyed.
+ */
+public class Box2DTracker {
+
+    /** The world whose bodies are tracked. */
+    private final World world;
+
+    /** Bodies alive for every owner. */
+    private final ObjectIntMap<String> bodies = new ObjectIntMap<String>();
+
+    /** Active bodies for every owner. Inactive bodies are parked and don't simulate. */
+    private final ObjectIntMap<String> active = new ObjectIntMap<String>();
+
+    /** Fixtures alive for every owner. */
+    private final ObjectIntMap<String> fixtures = new ObjectIntMap<String>();
+
+    /** Total amount of bodies and fixtures alive. */
+    private int totalBodies, totalActive, totalFixtures;
+
+    /**
+     * Create a tracker for some world. Every body of the world should be created using it.
+     * @param world  the world to track.
+     */
+    public Box2DTracker(World world) {
+        this.world = world;
+    }
+
+    /**
+     * Create a body in the world and track it.
+     * @param def    the definition for the body.
+     * @param owner  who owns this body, such as "player" or "floor".
+     * @return       the new body.
+     */
+    public Body createBody(BodyDef def, String owner) {
+        Body body = world.createBody(def);
+        body.setUserData(owner);
+        bodies.getAndIncrement(owner, 0, 1);
+        totalBodies++;
+        if (def.active) {
+            active.getAndIncrement(owner, 0, 1);
+            totalActive++;
+        }
+        return body;
+    }
+
+    /**
+     * Create a fixture and track it. The owner is the one of the body.
+     * @param body     the body where the fixture is created.
+     * @param shape    the shape for the fixture.
+     * @param density  the density for the fixture.
+     * @return         the new fixture.
+     */
+    public Fixture createFixture(Body body, Shape shape, float density) {
+        Fixture fixture = body.createFixture(shape, density);
+        fixtures.getAndIncrement(ownerOf(body), 0, 1);
+        totalFixtures++;
+        return fixture;
+    }
+
+    /**
+     * Destroy some fixture that was created using this tracker.
+     */
+    public void destroyFixture(Body body, Fixture fixture) {
+        body.destroyFixture(fixture);
+        fixtures.getAndIncrement(ownerOf(body), 0, -1);
+        totalFixtures--;
+    }
+
+    /**
+     * Destroy some body that was created using this tracker. Remember that the fixtures of the
+     * body have to be destroyed before using destroyFixture, or they won't be counted.
+     */
+    public void destroyBody(Body body) {
+        String owner = ownerOf(body);
+        if (body.isActive()) {
+            active.getAndIncrement(owner, 0, -1);
+            totalActive--;
+        }
+        world.destroyBody(body);
+        bodies.getAndIncrement(owner, 0, -1);
+        totalBodies--;
+    }
+
+    /**
+     * Activate or deactivate some body that was created using this tracker.
+     */
+    public void setActive(Body body, boolean flag) {
+        if (body.isActive() != flag) {
+            body.setActive(flag);
+            int amount = flag ? 1 : -1;
+            active.getAndIncrement(ownerOf(body), 0, amount);
+            totalActive += amount;
+        }
+    }
+
+    /**
+     * Check that the amount of active bodies is the expected one and log an error otherwise.
+     * Call this when every entity should have been given back, such as when a screen is hidden.
+     *
+     * @param where     some text to know where the check was done.
+     * @param expected  how many active bodies there should be, usually the value returned by
+     *                  getActiveBodies() before the entities were created.
+     * @return          true if the amount is right.
+     */
+    public boolean checkActive(String where, int expected) {
+        int current = getActiveBodies();
+        if (current != expected) {
+            error(where + ": " + (current - expected) + " active bodies were not given back. "
+                    + summary());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Check that the amount of bodies in the world is the amount of bodies tracked and log an
+     * error otherwise. If the world has more bodies than tracked, some body was created
+     * without using this tracker or some destroy method was forgotten.
+     *
+     * @param where  some text to know where the check was done.
+     * @return       true if the amount is right.
+     */
+    public boolean checkWorld(String where) {
+        if (world.getBodyCount() != totalBodies) {
+            error(where + ": world has " + world.getBodyCount() + " bodies but " + totalBodies
+                    + " are tracked. " + summary());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Log some error. Simulations can run without any backend, so Gdx.app might not exist.
+     */
+    private static void error(String message) {
+        if (Gdx.app != null) {
+            Gdx.app.error("Box2DTracker", message);
+        } else {
+            System.err.println("Box2DTracker: " + message);
+        }
+    }
+
+    private static String ownerOf(Body body) {
+        Object data = body.getUserData();
+        return data instanceof String ? (String) data : "unknown";
+    }
+
+    // Getter festival below here.
+
+    public World getWorld() {
+        return world;
+    }
+
+    public int getBodies() {
+        return totalBodies;
+    }
+
+    public int getBodies(String owner) {
+        return bodies.get(owner, 0);
+    }
+
+    public int getActiveBodies() {
+        return totalActive;
+    }
+
+    public int getActiveBodies(String owner) {
+        return active.get(owner, 0);
+    }
+
+    public int getFixtures() {
+        return totalFixtures;
+    }
+
+    public int getFixtures(String owner) {
+        return fixtures.get(owner, 0);
+    }
+
+    /**
+     * @return a line with the counters for every owner, to be logged.
+     */
+    public String summary() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("bodies=").append(totalBodies)
+                .append(" active=").append(totalActive)
+                .append(" fixtures=").append(totalFixtures);
+        for (ObjectIntMap.Entry<String> entry : bodies.entries()) {
+            builder.append(' ').append(entry.key).append('=').append(entry.value)
+                    .append('/').append(active.get(entry.key, 0))
+                    .append('/').append(fixtures.get(entry.key, 0));
+        }
+        return builder.toString();
+    }
+}
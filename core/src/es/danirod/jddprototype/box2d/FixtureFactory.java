@@ -29,23 +29,23 @@ import com.badlogic.gdx.physics.box2d.PolygonShape;
  * code outside that class to make it easier to see.
  */
 public class FixtureFactory {
-    public static Fixture createPlayerFixture(Body playerBody) {
+    public static Fixture createPlayerFixture(Box2DTracker tracker, Body playerBody) {
         PolygonShape minijoeShape = new PolygonShape();
         minijoeShape.setAsBox(0.5f, 0.5f);
-        Fixture fixture = playerBody.createFixture(minijoeShape, 3);
+        Fixture fixture = tracker.createFixture(playerBody, minijoeShape, 3);
         minijoeShape.dispose();
         return fixture;
     }
 
-    public static Fixture createFloorFixture(Body floorBody) {
+    public static Fixture createFloorFixture(Box2DTracker tracker, Body floorBody) {
         PolygonShape box = new PolygonShape();
         box.setAsBox(500, 1);
-        Fixture fixture = floorBody.createFixture(box, 1);
+        Fixture fixture = tracker.createFixture(floorBody, box, 1);
         box.dispose();
         return fixture;
     }
 
-    public static Fixture createSpikeFixture(Body pinchoBody) {
+    public static Fixture createSpikeFixture(Box2DTracker tracker, Body pinchoBody) {
         // This is the harder shape because it is not a box. I have to design the shape in
         // terms of vertices. So I create a vertex array to give the shape all the vertices.
         Vector2[] vertices = new Vector2[3];
@@ -55,7 +55,7 @@ public class FixtureFactory {
 
         PolygonShape shape = new PolygonShape();
         shape.set(vertices);
-        Fixture fixture = pinchoBody.createFixture(shape, 1);
+        Fixture fixture = tracker.createFixture(pinchoBody, shape, 1);
         shape.dispose();
         return fixture;
     }
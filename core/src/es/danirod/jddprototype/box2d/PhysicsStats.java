@@ -0,0 +1,230 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package es.danirod.jddprototype.box2d;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.StringBuilder;
+
+import java.util.Arrays;
+
+/**
+ * Statistics about a Box2D world: how many bodies, fixtures, contacts and proxies there are,
+ * how many bodies are awake, how long world.step takes and how many contacts begin and end on
+ * every tick. Use step() instead of calling world.step() directly and the counters will be
+ * updated on every tick. Nothing is allocated after the first few ticks, so it is safe to keep
+ * it enabled all the time.
+ *
+ * The contact listener of the world has to call beginContact() and endContact(), because a
+ * world can only have a single contact listener and it already belongs to the game.
+ */
+public class PhysicsStats {
+
+    /** How many step times are kept. Less than 286 so that Arrays.sort does not allocate. */
+    public static final int WINDOW = 256;
+
+    /** Time of the last steps, in nanoseconds. This is a ring buffer indexed by cursor. */
+    private final long[] stepTimes = new long[WINDOW];
+
+    /** Used to sort the step times when computing percentiles. */
+    private final long[] sorted = new long[WINDOW];
+
+    /** Where the next step time is stored and how many of them there are, up to WINDOW. */
+    private int cursor, samples;
+
+    /** Counters of the world, updated after every step. */
+    private int bodies, fixtures, contacts, proxies, awake;
+
+    /** Contacts begun and ended since the last step, and during the last tick. */
+    private int pendingBegun, pendingEnded, begun, ended;
+
+    /** Longest step seen since the stats were reset, in nanoseconds. */
+    private long maxStepTime;
+
+    /** Ticks measured since the stats were reset. */
+    private long ticks;
+
+    /** Filled with the bodies of the world to count the awake ones. */
+    private final Array<Body> bodyList = new Array<Body>(false, 64);
+
+    /** Text of the overlay. Reused on every frame. */
+    private final StringBuilder text = new StringBuilder(256);
+
+    /** Used to draw the overlay in screen coordinates. */
+    private final Matrix4 overlayProjection = new Matrix4();
+
+    /**
+     * Step the world and update the stats.
+     *
+     * @param world               the world to step.
+     * @param timeStep            the amount of time to simulate.
+     * @param velocityIterations  see World.step.
+     * @param positionIterations  see World.step.
+     */
+    public void step(World world, float timeStep, int velocityIterations, int positionIterations) {
+        long start = System.nanoTime();
+        world.step(timeStep, velocityIterations, positionIterations);
+        long time = System.nanoTime() - start;
+
+        stepTimes[cursor] = time;
+        cursor = (cursor + 1) % WINDOW;
+        samples = Math.min(samples + 1, WINDOW);
+        maxStepTime = Math.max(maxStepTime, time);
+        ticks++;
+
+        // Contacts that happened between the last step and this one count as this tick.
+        begun = pendingBegun;
+        ended = pendingEnded;
+        pendingBegun = pendingEnded = 0;
+
+        bodies = world.getBodyCount();
+        fixtures = world.getFixtureCount();
+        contacts = world.getContactCount();
+        proxies = world.getProxyCount();
+
+        world.getBodies(bodyList);
+        awake = 0;
+        for (int i = 0; i < bodyList.size; i++) {
+            if (bodyList.get(i).isAwake()) {
+                awake++;
+            }
+        }
+        bodyList.clear();
+    }
+
+    /** Call this from the contact listener of the world when a contact begins. */
+    public void beginContact() {
+        pendingBegun++;
+    }
+
+    /** Call this from the contact listener of the world when a contact ends. */
+    public void endContact() {
+        pendingEnded++;
+    }
+
+    /** Forget the step times and the maximum, for instance when a new game starts. */
+    public void reset() {
+        cursor = samples = 0;
+        maxStepTime = 0;
+        ticks = 0;
+        pendingBegun = pendingEnded = begun = ended = 0;
+    }
+
+    /**
+     * Get some percentile of the last step times.
+     *
+     * @param percentile  the percentile, from 0 to 100.
+     * @return the step time in nanoseconds.
+     */
+    public long getStepTimePercentile(int percentile) {
+        if (samples == 0) {
+            return 0;
+        }
+        System.arraycopy(stepTimes, 0, sorted, 0, samples);
+        Arrays.sort(sorted, 0, samples);
+        return sorted[Math.min(samples - 1, samples * percentile / 100)];
+    }
+
+    /**
+     * Write the stats as text, one line per group of counters.
+     *
+     * @param out  where to write the stats.
+     * @return the same builder, to chain calls.
+     */
+    public StringBuilder appendTo(StringBuilder out) {
+        out.append("bodies: ").append(bodies).append(" (").append(awake).append(" awake, ")
+                .append(bodies - awake).append(" sleeping)\n");
+        out.append("fixtures: ").append(fixtures).append(", proxies: ").append(proxies)
+                .append(", contacts: ").append(contacts).append('\n');
+        out.append("contacts this tick: +").append(begun).append(" -").append(ended).append('\n');
+        out.append("step us p50/p95/p99/max: ").append(getStepTimePercentile(50) / 1000)
+                .append(" / ").append(getStepTimePercentile(95) / 1000)
+                .append(" / ").append(getStepTimePercentile(99) / 1000)
+                .append(" / ").append(maxStepTime / 1000).append('\n');
+        return out;
+    }
+
+    /**
+     * Draw the stats at the bottom left corner of the screen. The batch must not be drawing.
+     *
+     * @param batch  the batch used to draw the text.
+     * @param font   the font used to draw the text.
+     */
+    public void draw(Batch batch, BitmapFont font) {
+        text.setLength(0);
+        appendTo(text);
+        overlayProjection.setToOrtho2D(0, 0, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+        batch.setProjectionMatrix(overlayProjection);
+        batch.begin();
+        font.draw(batch, text, 10, 10 + 4 * font.getLineHeight());
+        batch.end();
+    }
+
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder()).toString();
+    }
+
+    // Getter festival below here.
+
+    public int getBodies() {
+        return bodies;
+    }
+
+    public int getFixtures() {
+        return fixtures;
+    }
+
+    public int getContacts() {
+        return contacts;
+    }
+
+    public int getProxies() {
+        return proxies;
+    }
+
+    public int getAwake() {
+        return awake;
+    }
+
+    public int getSleeping() {
+        return bodies - awake;
+    }
+
+    public int getBegun() {
+        return begun;
+    }
+
+    public int getEnded() {
+        return ended;
+    }
+
+    public long getMaxStepTime() {
+        return maxStepTime;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package es.danirod.jddprototype.game;
+
+import com.badlogic.gdx.assets.AssetDescriptor;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.audio.Music;
+import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+
+/**
+ * The assets of the game, grouped by the screen that needs them. Groups are loaded in the
+ * order they are declared here, so the first group is the one that the user needs to see
+ * first. The rest of the groups are loaded in the background while the user is in the menu.
+ */
+public enum AssetGroup {
+
+    /** Things required to show the main menu. */
+    MENU(new AssetDescriptor<Texture>("logo.png", Texture.class)),
+
+    /** Things required to play. */
+    GAMEPLAY(new AssetDescriptor<TextureAtlas>("gameplay.atlas", TextureAtlas.class),
+            new AssetDescriptor<Sound>("audio/die.ogg", Sound.class),
+            new AssetDescriptor<Sound>("audio/jump.ogg", Sound.class),
+            new AssetDescriptor<Music>("audio/song.ogg", Music.class)),
+
+    /** Things required when the player loses. */
+    GAME_OVER(new AssetDescriptor<Texture>("gameover.png", Texture.class));
+
+    /** The assets in this group. */
+    private final AssetDescriptor<?>[] assets;
+
+    AssetGroup(AssetDescriptor<?>... assets) {
+        this.assets = assets;
+    }
+
+    /**
+     * Add every asset of this group to the queue of some asset manager.
+     * @param manager  the asset manager.
+     */
+    public void load(AssetManager manager) {
+        for (AssetDescriptor<?> asset : assets) {
+            manager.load(asset);
+        }
+    }
+
+    /**
+     * @param manager  the asset manager.
+     * @return         true if every asset of this group has been loaded.
+     */
+    public boolean isLoaded(AssetManager manager) {
+        for (AssetDescriptor<?> asset : assets) {
+            if (!manager.isLoaded(asset.fileName, asset.type)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -44,4 +44,78 @@ public class Constants {
      * in the circuit.
      */
     public static final float PLAYER_SPEED = 8f;
+
+    /**
+     * How strong gravity is in the world (m/s²). Changing this changes how high and how far the
+     * player jumps, so LevelGenerator will put the obstacles at other distances.
+     */
+    public static final float GRAVITY = 10f;
+
+    /**
+     * Density of the player (kg/m²). The player is a 1x1 meter box, so this is also its mass,
+     * and the player jumps with a vertical speed of IMPULSE_JUMP / PLAYER_DENSITY.
+     */
+    public static final float PLAYER_DENSITY = 3f;
+
+    /**
+     * While the player is jumping, IMPULSE_JUMP multiplied by this is applied downwards as a
+     * force, so that the player falls faster than gravity alone would make it.
+     */
+    public static final float JUMP_FALL_FACTOR = 1.15f;
+
+    /**
+     * The duration of a single physics tick in seconds. The world is always stepped using this
+     * amount of time, no matter how long a frame took, so that the simulation behaves the same
+     * way on a 60 Hz phone and on a 144 Hz monitor.
+     */
+    public static final float STEP_TIME = 1 / 60f;
+
+    /**
+     * How many physics ticks can be run in a single frame at most. If a frame takes very long
+     * (for instance, because the device hitched), the game won't try to catch up with all the
+     * lost time, because that would make the next frame take even longer.
+     */
+    public static final int MAX_STEPS_PER_FRAME = 5;
+
+    /**
+     * How wide a chunk of level is (meters). Levels are split into chunks and only the chunks
+     * near the player exist in the world at any time.
+     */
+    public static final float CHUNK_SIZE = 16f;
+
+    /**
+     * How far ahead of the player the chunks have to be spawned (meters). The camera shows a
+     * bit more than 5 meters in front of the player, so this has to be larger than that.
+     */
+    public static final float STREAM_AHEAD = 12f;
+
+    /**
+     * How far behind the player a chunk has to be before it is removed (meters). The camera
+     * shows less than 2 meters behind the player.
+     */
+    public static final float STREAM_BEHIND = 4f;
+
+    /**
+     * Seed of the level that is played. The same seed always generates the same level, see
+     * LevelGenerator. Seed 0 would be the original hand-made level.
+     */
+    public static final long LEVEL_SEED = 0x4A4444L;
+
+    /**
+     * How many milliseconds per frame the asset manager can spend loading assets while the
+     * user is already in the menu.
+     */
+    public static final int ASSET_LOAD_BUDGET = 4;
+
+    /**
+     * When the used Java heap goes over this fraction of the maximum heap, the screens that
+     * are rarely used are disposed to free some memory.
+     */
+    public static final float MEMORY_PRESSURE = 0.75f;
+
+    /**
+     * How many best scores are kept and displayed in the game over screen. Older scores that
+     * are not good enough are removed from the score log when it is compacted.
+     */
+    public static final int HIGH_SCORES = 5;
 }
@@ -24,11 +24,17 @@ import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.ui.Image;
+import com.badlogic.gdx.scenes.scene2d.ui.Label;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.scenes.scene2d.ui.TextButton;
 import com.badlogic.gdx.scenes.scene2d.utils.ChangeListener;
+import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.StringBuilder;
 import com.badlogic.gdx.utils.viewport.FitViewport;
 
+import es.danirod.jddprototype.game.score.Score;
+import es.danirod.jddprototype.game.score.ScoreStore;
+
 /**
  * This is the screen that you see when you lose. It has buttons to replay the game again or
  * to go back to the main menu and it is the second screen of this game that uses Scene2D UI.
@@ -47,15 +53,25 @@ public class GameOverScreen extends BaseScreen {
     /** The buttons for retrying or for going back to menu. */
     private TextButton retry, menu;
 
+    /** Tells how far you went and which are the best scores. */
+    private Label scores;
+
+    /** The text of the scores label, reused every time the screen is shown. */
+    private StringBuilder scoresText = new StringBuilder();
+
     public GameOverScreen(final es.danirod.jddprototype.game.MainGame game) {
         super(game);
 
-        // Create a new stage, as usual.
-        stage = new Stage(new FitViewport(640, 360));
+        // Borrow the shared UI resources from the game. Every screen uses the same skin and the
+        // same batch, so they are only loaded once (see UiResources).
+        game.getUi().acquire();
+
+        // Create a new stage, as usual, but draw it using the shared batch.
+        stage = new Stage(new FitViewport(640, 360), game.getUi().getBatch());
 
-        // Load the skin file. The skin file contains information about the skins. It can be
+        // Get the skin file. The skin file contains information about the skins. It can be
         // passed to any widget in Scene2D UI to set the style. It just works, amazing.
-        skin = new Skin(Gdx.files.internal("skin/uiskin.json"));
+        skin = game.getUi().getSkin();
 
         // For instance, here you see that I create a new button by telling the label of the
         // button as well as the skin file. The background image for the button is in the skin
@@ -67,6 +83,10 @@ public class GameOverScreen extends BaseScreen {
         // want to display a texture in a Scene2D based screen but you don't want to rewrite code.
         gameover = new Image(game.getManager().get("gameover.png", Texture.class));
 
+        // And a label for the scores. The text is set every time the screen is shown.
+        scores = new Label("", skin);
+        scores.setAlignment(Align.center);
+
         // Add capture listeners. Capture listeners have one method, changed, that is executed
         // when the button is pressed or when the user interacts somehow with the widget. They are
         // cool because they let you execute some code when you press them.
@@ -74,7 +94,7 @@ public class GameOverScreen extends BaseScreen {
             @Override
             public void changed(ChangeEvent event, Actor actor) {
                 // Here I go to the game screen again.
-                game.setScreen(game.gameScreen);
+                game.showScreen(ScreenId.GAME);
             }
         });
 
@@ -82,7 +102,7 @@ public class GameOverScreen extends BaseScreen {
             @Override
             public void changed(ChangeEvent event, Actor actor) {
                 // And here I go to the menu screen.
-                game.setScreen(game.menuScreen);
+                game.showScreen(ScreenId.MENU);
             }
         });
 
@@ -94,11 +114,13 @@ public class GameOverScreen extends BaseScreen {
         menu.setSize(200, 80);
         retry.setPosition(60, 50);
         menu.setPosition(380, 50);
+        scores.setBounds(0, 140, 640, 100);
 
         // Do not forget to add actors to the stage or we wouldn't see anything.
         stage.addActor(retry);
         stage.addActor(gameover);
         stage.addActor(menu);
+        stage.addActor(scores);
     }
 
     @Override
@@ -108,6 +130,23 @@ public class GameOverScreen extends BaseScreen {
         // making the Stage the default input processor for this game, it is now possible to
         // click on buttons and even to type on input fields.
         Gdx.input.setInputProcessor(stage);
+
+        // The ranking is kept in memory, so it can be displayed right away even if the last
+        // score has not been written to disk yet.
+        ScoreStore store = game.getScores();
+        Score last = store.getLast();
+        scoresText.setLength(0);
+        if (last != null) {
+            scoresText.append("You ran ").append(last.toString()).append('\n');
+        }
+        if (store.getTopSize() > 0) {
+            scoresText.append("Best: ");
+            for (int i = 0; i < store.getTopSize(); i++) {
+                Score score = store.getTop(i);
+                scoresText.append(i > 0 ? ",  " : "").append(score.toString());
+            }
+        }
+        scores.setText(scoresText);
     }
 
     @Override
@@ -121,7 +160,7 @@ public class GameOverScreen extends BaseScreen {
     @Override
     public void dispose() {
         // Dispose assets.
-        skin.dispose();
+        game.getUi().release();
         stage.dispose();
     }
 
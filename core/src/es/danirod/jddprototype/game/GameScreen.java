@@ -18,48 +18,64 @@
 
 package es.danirod.jddprototype.game;
 
+import com.badlogic.gdx.Application;
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
 import com.badlogic.gdx.audio.Music;
 import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.GL20;
-import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.math.Vector3;
-import com.badlogic.gdx.physics.box2d.Contact;
-import com.badlogic.gdx.physics.box2d.ContactImpulse;
-import com.badlogic.gdx.physics.box2d.ContactListener;
-import com.badlogic.gdx.physics.box2d.Manifold;
-import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.scenes.scene2d.Stage;
-import com.badlogic.gdx.scenes.scene2d.actions.Actions;
+import com.badlogic.gdx.scenes.scene2d.actions.DelayAction;
+import com.badlogic.gdx.scenes.scene2d.actions.RunnableAction;
+import com.badlogic.gdx.scenes.scene2d.actions.SequenceAction;
+import com.badlogic.gdx.utils.TimeUtils;
 import com.badlogic.gdx.utils.viewport.FitViewport;
 
 import es.danirod.jddprototype.game.entities.EntityFactory;
-import es.danirod.jddprototype.game.entities.FloorEntity;
 import es.danirod.jddprototype.game.entities.PlayerEntity;
-import es.danirod.jddprototype.game.entities.SpikeEntity;
-
-import java.util.ArrayList;
-import java.util.List;
+import es.danirod.jddprototype.game.level.LevelCache;
+import es.danirod.jddprototype.game.level.LevelGenerator;
+import es.danirod.jddprototype.game.level.LevelSource;
+import es.danirod.jddprototype.game.profiler.FrameProfiler;
+import es.danirod.jddprototype.game.simulation.GameSimulation;
+import es.danirod.jddprototype.game.simulation.InputScript;
+import es.danirod.jddprototype.game.simulation.Replay;
+import es.danirod.jddprototype.game.simulation.SimulationListener;
+import es.danirod.jddprototype.game.simulation.Snapshot;
+import es.danirod.jddprototype.game.simulation.TouchQueue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
- * This is the main screen for the game. All the fun happen here.
+ * This is the main screen for the game. All the fun happen here. The rules of the game live in
+ * GameSimulation. This screen feeds the simulation with the input, draws it and plays sounds.
  */
 public class GameScreen extends BaseScreen {
 
+    /** Where the game is saved when it is paused, so that it can be continued after a crash. */
+    static final String SESSION_FILE = "session.jds";
+
     /** Stage instance for Scene2D rendering. */
     private Stage stage;
 
-    /** World instance for Box2D engine. */
-    private World world;
+    /** The simulation that has the Box2D world and the level. */
+    private GameSimulation simulation;
 
     /** Player entity. */
     private PlayerEntity player;
 
-    /** List of floors attached to this level. */
-    private List<FloorEntity> floorList = new ArrayList<FloorEntity>();
+    /** The level that is played and its seed. */
+    private LevelSource level;
+    private long levelSeed;
 
-    /** List of spikes attached to this level. */
-    private List<SpikeEntity> spikeList = new ArrayList<SpikeEntity>();
+    /** Draws the floors and spikes of the level with a single draw call. */
+    private LevelCache levelCache;
 
     /** Jump sound that has to play when the player jumps. */
     private Sound jumpSound;
@@ -73,26 +89,97 @@ public class GameScreen extends BaseScreen {
     /** Initial position of the camera. Required for reseting the viewport. */
     private Vector3 position;
 
+    /**
+     * Amount of active bodies before the game started. When the screen is hidden, every body
+     * should have been given back and this number should be the same again.
+     */
+    private int activeBaseline;
+
+    /** Seconds since the Box2D counters were logged for the last time. */
+    private float trackerLogTime;
+
+    /** The input of the current game, recorded so that it can be saved as a replay. */
+    private InputScript recording = new InputScript(1024);
+
+    /** If not null, the replay that is being played instead of reading the input. */
+    private Replay replay;
+
+    /** How many times faster than real time the replay is played. */
+    private int replaySpeed = 1;
+
+    /** If not null, the game that has to be continued the next time this screen is shown. */
+    private Snapshot session;
+
+    /** Is the current game a continued one? Then it cannot be saved as a replay. */
+    private boolean continued;
+
+    /** Reused every time the game is paused, see pause(). */
+    private Snapshot pauseSnapshot = new Snapshot();
+
+    /** Receives the touches of the user so that they are applied on the right tick. */
+    private TouchQueue touches = new TouchQueue();
+
+    /** Measures every phase of the frame. Press F3 to toggle it and F4 to save it as CSV. */
+    private FrameProfiler profiler;
+
+    /** Should the physics stats be displayed? Press F5 to toggle them. */
+    private boolean showPhysicsStats;
+
+    /** Waits a bit and then goes to the game over screen. Created once and reused. */
+    private SequenceAction gameOverAction;
+
     /**
      * Create the screen. Since this constructor cannot be invoked before libGDX is fully started,
      * it is safe to do critical code here such as loading assets and setting up the stage.
      * @param game
      */
-    public GameScreen(es.danirod.jddprototype.game.MainGame game) {
+    public GameScreen(final es.danirod.jddprototype.game.MainGame game) {
         super(game);
 
-        // Create a new Scene2D stage for displaying things.
-        stage = new Stage(new FitViewport(640, 360));
+        // Create a new Scene2D stage for displaying things. It uses the batch shared by every
+        // screen instead of creating its own one.
+        game.getUi().acquire();
+        stage = new Stage(new FitViewport(640, 360), game.getUi().getBatch());
         position = new Vector3(stage.getCamera().position);
 
-        // Create a new Box2D world for managing things.
-        world = new World(new Vector2(0, -10), true);
-        world.setContactListener(new GameContactListener());
+        // Create a new simulation for managing things.
+        // The level is generated in the background while playing.
+        levelSeed = Constants.LEVEL_SEED;
+        level = LevelGenerator.forSeed(levelSeed);
+        simulation = new GameSimulation(new EntityFactory(game.getManager()), level);
+        simulation.setListener(new GameSimulationListener());
+
+        // The level is drawn by the cache, not by the entities themselves. The group with the
+        // entities is still added to the stage, but it is invisible. A chunk is 16 meters of
+        // floor, some platforms and some spikes, and every meter of floor is 2 sprites. Generated
+        // chunks have about 50 sprites at most.
+        TextureAtlas atlas = game.getManager().get("gameplay.atlas", TextureAtlas.class);
+        levelCache = new LevelCache(simulation.getStreamer(), atlas.getTextures().first(), 64);
+        simulation.getStreamer().getGroup().setVisible(false);
 
         // Get the sound effect references that will play during the game.
         jumpSound = game.getManager().get("audio/jump.ogg");
         dieSound = game.getManager().get("audio/die.ogg");
         backgroundMusic = game.getManager().get("audio/song.ogg");
+
+        profiler = new FrameProfiler();
+        profiler.setAllocationSampler(game.getAllocationSampler());
+
+        // Add an Action. Actions are cool because they let you add animations to your
+        // game. Here I create a sequence action so that two actions happens one after
+        // the other. One action is a delay action. It just waits for 1.5 seconds.
+        // The second actions is a run action. It executes some code. Here, we go
+        // to the game over screen when we die. The actions are created with new instead of
+        // Actions.sequence() so that they don't belong to a pool and can be reused in every
+        // game without creating garbage.
+        RunnableAction goToGameOver = new RunnableAction();
+        goToGameOver.setRunnable(new Runnable() {
+            @Override
+            public void run() {
+                game.showScreen(ScreenId.GAME_OVER);
+            }
+        });
+        gameOverAction = new SequenceAction(new DelayAction(1.5f), goToGameOver);
     }
 
     /**
@@ -101,42 +188,74 @@ public class GameScreen extends BaseScreen {
      */
     @Override
     public void show() {
-        EntityFactory factory = new EntityFactory(game.getManager());
-
-        // Create the player. It has an initial position.
-        player = factory.createPlayer(world, new Vector2(1.5f, 1.5f));
-
-        // This is the main floor. That is why is so long.
-        floorList.add(factory.createFloor(world, 0, 1000, 1));
-
-        // Now generate some floors over the main floor. Needless to say, that on a real game
-        // this should be better engineered. For instance, have all the information for floors
-        // and spikes in a data structure or even some level file and generate them without
-        // writing lines of code.
-        floorList.add(factory.createFloor(world, 15, 10, 2));
-        floorList.add(factory.createFloor(world, 30, 8, 2));
-
-        // Generate some spikes too.
-        spikeList.add(factory.createSpikes(world, 8, 1));
-        spikeList.add(factory.createSpikes(world, 23, 2));
-        spikeList.add(factory.createSpikes(world, 35, 2));
-        spikeList.add(factory.createSpikes(world, 50, 1));
+        // Remember how many bodies were active before building the level.
+        activeBaseline = simulation.getTracker().getActiveBodies();
+
+        // Replays have to be played in the level where they were recorded, and saved games
+        // have to be continued in the level where they were saved.
+        long seed = replay != null ? replay.getSeed()
+                : session != null ? session.getSeed() : Constants.LEVEL_SEED;
+        if (seed != levelSeed) {
+            disposeLevel();
+            levelSeed = seed;
+            level = LevelGenerator.forSeed(levelSeed);
+            simulation.setLevel(level);
+        }
+        if (level instanceof LevelGenerator) {
+            // Replays might be played faster than real time, do not miss any chunk.
+            ((LevelGenerator) level).setWaitForChunks(replay != null);
+        }
 
-        // All add the floors and spikes to the stage.
-        for (FloorEntity floor : floorList)
-            stage.addActor(floor);
-        for (SpikeEntity spike : spikeList)
-            stage.addActor(spike);
+        // Build the level and add the floors and spikes to the stage. The streamer will add
+        // and remove them from its group while the player moves.
+        continued = session != null;
+        if (continued) {
+            // The player is somewhere in the middle of the level. The chunks below the player
+            // must be there before the first tick, or the player would fall through the floor.
+            if (level instanceof LevelGenerator) {
+                ((LevelGenerator) level).setWaitForChunks(true);
+            }
+            simulation.start(session);
+            if (level instanceof LevelGenerator) {
+                ((LevelGenerator) level).setWaitForChunks(replay != null);
+            }
+        } else {
+            simulation.start();
+        }
+        stage.addActor(simulation.getStreamer().getGroup());
+        stage.addActor(levelCache);
+
+        // Either play the replay or record the input of this game. The input is not read
+        // from Gdx.input on every frame: the touches are queued as soon as libGDX knows about
+        // them and the simulation takes them from the queue on every tick.
+        if (replay != null) {
+            simulation.play(replay.getScript());
+        } else {
+            recording.clear();
+            simulation.record(recording);
+            simulation.listen(touches);
+            Gdx.input.setInputProcessor(touches);
+        }
 
         // Add the player to the stage too.
+        player = simulation.getPlayer();
         stage.addActor(player);
 
         // Reset the camera to the left. This is required because we have translated the camera
         // during the game. We need to put the camera on the initial position so that you can
         // use it again if you replay the game.
         stage.getCamera().position.set(position);
+        if (continued) {
+            stage.getCamera().position.x = session.getCameraX();
+            session = null;
+        }
         stage.getCamera().update();
 
+        // Audit mode: tell which frames allocate memory during the whole game.
+        if (game.getAllocationSampler() != null) {
+            profiler.setEnabled(true);
+        }
+
         // Everything is ready, turn the volume up.
         backgroundMusic.setVolume(0.75f);
         backgroundMusic.play();
@@ -153,16 +272,40 @@ public class GameScreen extends BaseScreen {
         // an improvement.
         stage.clear();
 
-        // Detach every entity from the world they have been living in.
-        player.detach();
-        for (FloorEntity floor : floorList)
-            floor.detach();
-        for (SpikeEntity spike : spikeList)
-            spike.detach();
+        // The profiler is only for this screen, do not keep intercepting GL calls.
+        profiler.setEnabled(false);
+
+        // The game is over, there is nothing to continue anymore.
+        Gdx.files.local(SESSION_FILE).delete();
+
+        // Save the input of this game so that it can be played again later. Also tell how
+        // long it took to jump after touching the screen. A continued game only has the input
+        // since it was continued, so it cannot be played again.
+        if (replay == null) {
+            Gdx.input.setInputProcessor(null);
+            simulation.listen(null);
+            Gdx.app.log("TouchQueue", touches.toString());
+            touches.resetLatencies();
+            simulation.record(null);
+            if (!continued) {
+                saveReplay(Gdx.files.local("replays/last.jdr"));
+            }
+        } else {
+            simulation.play(null);
+            replay = null;
+        }
 
-        // Clear the lists.
-        floorList.clear();
-        spikeList.clear();
+        // Give every entity back to the pool so that the next game can reuse them.
+        simulation.stop();
+
+        // Tell how many entities had to be created during this game. After the first game this
+        // should be zero, because everything is reused from the pool.
+        Gdx.app.log("EntityPool", simulation.getPool().toString());
+        simulation.getPool().resetStats();
+
+        // Check that everything has been given back and that no body has been leaked.
+        simulation.getTracker().checkActive("GameScreen.hide", activeBaseline);
+        simulation.getTracker().checkWorld("GameScreen.hide");
     }
 
     /**
@@ -171,131 +314,251 @@ public class GameScreen extends BaseScreen {
      */
     @Override
     public void render(float delta) {
+        // Toggle the profiler or save what it has measured.
+        if (Gdx.input.isKeyJustPressed(Input.Keys.F3)) {
+            profiler.setEnabled(!profiler.isEnabled());
+        } else if (Gdx.input.isKeyJustPressed(Input.Keys.F4) && profiler.isEnabled()) {
+            profiler.exportCsv(Gdx.files.local("profiles/frames-" + TimeUtils.millis() + ".csv"));
+        }
+        if (Gdx.input.isKeyJustPressed(Input.Keys.F5)) {
+            showPhysicsStats = !showPhysicsStats;
+        }
+        profiler.beginFrame();
+
         // Do not forget to clean the screen.
         Gdx.gl.glClearColor(0.4f, 0.5f, 0.8f, 1f);
         Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+        profiler.mark(FrameProfiler.Metric.CLEAR);
 
-        // Update the stage. This will update the player speed.
+        // Update the stage. This will run the actions.
         stage.act();
+        profiler.mark(FrameProfiler.Metric.ACT);
+
+        if (replay == null) {
+            // Step the world. This will update the physics and update entity positions. The
+            // touches of the user are taken from the queue by the simulation.
+            simulation.update(delta);
+        } else {
+            // The input comes from the replay. Fast forward if required.
+            for (int i = 0; i < replaySpeed; i++) {
+                simulation.update(delta);
+            }
+        }
+        profiler.mark(FrameProfiler.Metric.PHYSICS);
 
-        // Step the world. This will update the physics and update entity positions.
-        world.step(delta, 6, 2);
+        // Place the player somewhere between the last two ticks depending on the time left.
+        player.interpolate(simulation.getAlpha());
 
         // Make the camera follow the player. As long as the player is alive, if the player is
-        // moving, make the camera move at the same speed, so that the player is always
-        // centered at the same position.
+        // moving, make the camera move with the player, so that the player is always centered
+        // at the same position.
         if (player.getX() > 150 && player.isAlive()) {
-            float speed = Constants.PLAYER_SPEED * delta * Constants.PIXELS_IN_METER;
-            stage.getCamera().translate(speed, 0, 0);
+            stage.getCamera().position.x = position.x + player.getX() - 150;
         }
+        profiler.mark(FrameProfiler.Metric.CAMERA);
 
         // Render the screen. Remember, this is the last step!
         stage.draw();
+        profiler.mark(FrameProfiler.Metric.DRAW);
+        profiler.endFrame();
+
+        // The overlay is drawn after the frame has been measured, so it does not count.
+        profiler.draw(stage.getBatch(), game.getUi().getDefaultFont());
+        if (showPhysicsStats) {
+            simulation.getStats().draw(stage.getBatch(), game.getUi().getDefaultFont());
+        }
+
+        // When debugging, log how many bodies there are from time to time, to see leaks, and
+        // how many times the batch had to be flushed to draw this frame.
+        trackerLogTime += delta;
+        if (trackerLogTime > 5 && Gdx.app.getLogLevel() >= Application.LOG_DEBUG) {
+            trackerLogTime = 0;
+            Gdx.app.debug("Box2DTracker", simulation.getTracker().summary());
+            Gdx.app.debug("PhysicsStats", simulation.getStats().toString());
+            Gdx.app.debug("TouchQueue", touches.toString());
+            Gdx.app.debug("GameScreen", "render calls: " + ((SpriteBatch) stage.getBatch()).renderCalls
+                    + ", visible: " + simulation.getStreamer().getGroup().getVisibleCount()
+                    + ", culled: " + simulation.getStreamer().getGroup().getCulledCount());
+        }
     }
 
     /**
-     * This method is executed when the screen can be safely disposed.
-     * I use this method to dispose things that have to be manually disposed.
+     * The game goes to the background. On Android, the process can be killed at any moment
+     * from now on without calling dispose(), so save the game while we can. The snapshot is
+     * tiny, so it can be written right here.
      */
     @Override
-    public void dispose() {
-        // Dispose the stage to remove the Batch references in the graphics card.
-        stage.dispose();
-
-        // Dispose the world to remove the Box2D native data (C++ backend, invoked by Java).
-        world.dispose();
+    public void pause() {
+        if (replay == null && player.isAlive()) {
+            simulation.save(pauseSnapshot);
+            pauseSnapshot.setSeed(levelSeed);
+            pauseSnapshot.setCameraX(stage.getCamera().position.x);
+            saveSession(Gdx.files.local(SESSION_FILE));
+        }
     }
 
     /**
-     * This is the contact listener that checks the world for collisions and contacts.
-     * I use this method to evaluate when things collide, such as player colliding with floor.
+     * The game was not killed while it was in the background, so the snapshot is not needed.
      */
-    private class GameContactListener implements ContactListener {
+    @Override
+    public void resume() {
+        Gdx.files.local(SESSION_FILE).delete();
+    }
 
-        private boolean areCollided(Contact contact, Object userA, Object userB) {
-            Object userDataA = contact.getFixtureA().getUserData();
-            Object userDataB = contact.getFixtureB().getUserData();
+    /**
+     * Continue some saved game the next time this screen is shown, instead of starting a new one.
+     * @param session  the saved game.
+     */
+    public void continueSession(Snapshot session) {
+        this.session = session;
+    }
 
-            // This is not in the video! It is a good idea to check that user data is not null.
-            // Sometimes you forget to put user data or you get collisions by entities you didn't
-            // expect. Not preventing this will probably result in a NullPointerException.
-            if (userDataA == null || userDataB == null) {
-                return false;
+    /**
+     * Read the game saved the last time the game was paused, if any.
+     * @return the saved game, or null if there is no saved game or it cannot be read.
+     */
+    static Snapshot loadSession() {
+        FileHandle file = Gdx.files.local(SESSION_FILE);
+        if (!file.exists()) {
+            return null;
+        }
+        InputStream in = null;
+        try {
+            in = file.read();
+            return Snapshot.read(in);
+        } catch (Exception e) {
+            // Probably killed while writing. Just start a new game.
+            Gdx.app.error("GameScreen", "Cannot continue game from " + file.path(), e);
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
             }
-
-            // Because you never know what is A and what is B, you have to do both checks.
-            return (userDataA.equals(userA) && userDataB.equals(userB)) ||
-                    (userDataA.equals(userB) && userDataB.equals(userA));
+            // Whatever happens, do not try to continue the same game twice.
+            file.delete();
         }
+    }
 
-        /**
-         * This method is executed when a contact has started: when two fixtures just collided.
-         */
-        @Override
-        public void beginContact(Contact contact) {
-            // The player has collided with the floor.
-            if (areCollided(contact, "player", "floor")) {
-                player.setJumping(false);
-
-                // If the screen is still touched, you have to jump again.
-                if (Gdx.input.isTouched()) {
-                    jumpSound.play();
-
-                    // You just can't add a force here, because while a contact is being handled
-                    // the world is locked. Therefore you have to find a way to remember to make
-                    // the player jump AFTER the collision has been handled. Here I update the
-                    // flag value mustJump. This will make the player jump on next frame.
-                    player.setMustJump(true);
+    /**
+     * Save the snapshot taken when the game was paused. It is written to another file first,
+     * so if the game is killed while writing, the previous snapshot is still valid.
+     * @param file  where to save the snapshot.
+     */
+    private void saveSession(FileHandle file) {
+        FileHandle temp = file.sibling(file.name() + ".tmp");
+        OutputStream out = null;
+        try {
+            out = temp.write(false, 64);
+            pauseSnapshot.write(out);
+            out.close();
+            out = null;
+            temp.moveTo(file);
+        } catch (Exception e) {
+            Gdx.app.error("GameScreen", "Cannot save game to " + file.path(), e);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
                 }
             }
+        }
+    }
 
-            // The player has collided with something that hurts.
-            if (areCollided(contact, "player", "spike")) {
-
-                // Check that is alive. Sometimes you bounce, you don't want to die more than once.
-                if (player.isAlive()) {
-                    player.setAlive(false);
-
-                    // Sound feedback.
-                    backgroundMusic.stop();
-                    dieSound.play();
-
-                    // Add an Action. Actions are cool because they let you add animations to your
-                    // game. Here I add a sequence action so that two actions happens one after
-                    // the other. One action is a delay action. It just waits for 1.5 seconds.
-                    // The second actions is a run action. It executes some code. Here, we go
-                    // to the game over screen when we die.
-                    stage.addAction(
-                            Actions.sequence(
-                                    Actions.delay(1.5f),
-                                    Actions.run(new Runnable() {
-
-                                        @Override
-                                        public void run() {
-                                            game.setScreen(game.gameOverScreen);
-                                        }
-                                    })
-                            )
-                    );
+    /**
+     * Play some replay the next time this screen is shown, instead of reading the input.
+     * @param replay  the replay to play.
+     * @param speed   how many times faster than real time it has to be played.
+     */
+    public void playReplay(Replay replay, int speed) {
+        this.replay = replay;
+        this.replaySpeed = Math.max(1, speed);
+    }
+
+    /**
+     * @return the simulation where the game is played. Used by tools that drive this screen
+     *         without a user, to know when the game is over.
+     */
+    public GameSimulation getSimulation() {
+        return simulation;
+    }
+
+    /**
+     * Save the input recorded during the last game as a replay.
+     * @param file  where to save the replay.
+     */
+    private void saveReplay(FileHandle file) {
+        OutputStream out = null;
+        try {
+            out = file.write(false, 1024);
+            new Replay(levelSeed, simulation.getTicks(), recording).write(out);
+        } catch (Exception e) {
+            // Replays are useful but they are not important enough to stop the game.
+            Gdx.app.error("GameScreen", "Cannot save replay to " + file.path(), e);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
                 }
             }
         }
+    }
+
+    /**
+     * This method is executed when the screen can be safely disposed.
+     * I use this method to dispose things that have to be manually disposed.
+     */
+    @Override
+    public void dispose() {
+        // Dispose the stage to remove the Batch references in the graphics card.
+        stage.dispose();
+        game.getUi().release();
+        levelCache.dispose();
+
+        // Dispose the simulation to remove the Box2D native data (C++ backend, invoked by Java).
+        simulation.dispose();
+        disposeLevel();
+    }
+
+    /**
+     * Stop generating the level if it is generated in the background.
+     */
+    private void disposeLevel() {
+        if (level instanceof LevelGenerator) {
+            ((LevelGenerator) level).dispose();
+        }
+    }
+
+    /**
+     * This listener plays the sounds and changes the screen when something happens in the
+     * simulation, such as the player jumping or dying.
+     */
+    private class GameSimulationListener implements SimulationListener {
 
-        /**
-         * This method is executed when a contact has finished: two fixtures are no more colliding.
-         */
         @Override
-        public void endContact(Contact contact) {
-            // The player is jumping and it is not touching the floor.
-            if (areCollided(contact, "player", "floor")) {
-                if (player.isAlive()) {
-                    jumpSound.play();
-                }
-            }
+        public void onJump() {
+            jumpSound.play();
         }
 
-        // Here two lonely methods that I don't use but have to override anyway.
-        @Override public void preSolve(Contact contact, Manifold oldManifold) { }
-        @Override public void postSolve(Contact contact, ContactImpulse impulse) { }
+        @Override
+        public void onDeath() {
+            // Sound feedback.
+            backgroundMusic.stop();
+            dieSound.play();
+
+            // Keep the score, unless this game is a replay. The score is written to disk in the
+            // background, so this does not make the frame any slower.
+            if (replay == null) {
+                game.getScores().submit(levelSeed, simulation.getTicks(), simulation.getDistance());
+            }
+
+            // Go to the game over screen in a while (see the constructor).
+            gameOverAction.restart();
+            stage.addAction(gameOverAction);
+        }
     }
 }
@@ -23,6 +23,7 @@ import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.ui.Label;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.badlogic.gdx.utils.StringBuilder;
 import com.badlogic.gdx.utils.viewport.FitViewport;
 
 /**
@@ -42,12 +43,19 @@ public class LoadingScreen extends BaseScreen {
     /** This is the label that we use to display some text on the screen. */
     private Label loading;
 
+    /** The text of the label. It is reused so that no String is created on every frame. */
+    private StringBuilder text = new StringBuilder(16);
+
+    /** Last progress that was displayed. The text only changes when the progress changes. */
+    private int lastProgress = -1;
+
     public LoadingScreen(es.danirod.jddprototype.game.MainGame game) {
         super(game);
 
         // Set up the stage and the skin. See GameOverScreen for more comments on this.
-        stage = new Stage(new FitViewport(640, 360));
-        skin = new Skin(Gdx.files.internal("skin/uiskin.json"));
+        game.getUi().acquire();
+        stage = new Stage(new FitViewport(640, 360), game.getUi().getBatch());
+        skin = game.getUi().getSkin();
 
         // Create some loading text using this skin file and position it on screen.
         loading = new Label("Loading...", skin);
@@ -73,7 +81,12 @@ public class LoadingScreen extends BaseScreen {
             // getProgress() returns the progress of the load in a range of [0,1]. We multiply
             // this progress per * 100 so that we can display it as a percentage.
             int progress = (int) (game.getManager().getProgress() * 100);
-            loading.setText("Loading... " + progress + "%");
+            if (progress != lastProgress) {
+                lastProgress = progress;
+                text.setLength(0);
+                text.append("Loading... ").append(progress).append('%');
+                loading.setText(text);
+            }
         }
 
         stage.act();
@@ -83,6 +96,6 @@ public class LoadingScreen extends BaseScreen {
     @Override
     public void dispose() {
         stage.dispose();
-        skin.dispose();
+        game.getUi().release();
     }
 }
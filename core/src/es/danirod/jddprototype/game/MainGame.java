@@ -19,10 +19,14 @@
 package es.danirod.jddprototype.game;
 
 import com.badlogic.gdx.Game;
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.assets.AssetManager;
-import com.badlogic.gdx.audio.Music;
-import com.badlogic.gdx.audio.Sound;
-import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.utils.TimeUtils;
+
+import es.danirod.jddprototype.game.profiler.AllocationSampler;
+import es.danirod.jddprototype.game.score.ScoreStore;
+import es.danirod.jddprototype.game.simulation.Snapshot;
+import es.danirod.jddprototype.game.simulation.Replay;
 
 /**
  * This is our main game. This is the class that we pass to the Application in Android launcher
@@ -34,49 +38,249 @@ public class MainGame extends Game {
     /** This is the asset manager we use to centralize the assets. */
     private AssetManager manager;
 
+    /** The skin, fonts and batch shared by every screen. */
+    private final UiResources ui = new UiResources();
+
     /**
-     * These are the screens that we use in this game. I invite you to use a better system than
-     * just public variables. For instance, you could create an ArrayList or maybe use some
-     * structure such as a map where you can associate a number or a string to a screen.
+     * These are the screens that we use in this game. Instead of creating every screen when
+     * the game starts, the registry creates them the first time they are needed. Use
+     * showScreen() to go to another screen.
      */
-    public BaseScreen loadingScreen, menuScreen, gameScreen, gameOverScreen, creditsScreen;
+    private ScreenRegistry screens;
+
+    /** The id of the screen being displayed right now. */
+    private ScreenId current = ScreenId.LOADING;
+
+    /** If not null, this replay is played as soon as the game is loaded. */
+    private Replay startupReplay;
+
+    /** How fast the startup replay has to be played. */
+    private int startupReplaySpeed;
+
+    /** When the game was created, to know how long it takes to show the menu. */
+    private long createTime;
+
+    /** Is the asset manager still loading assets in the background? */
+    private boolean backgroundLoading;
+
+    /** The best scores of the player. They are saved in the background. */
+    private ScoreStore scores;
+
+    /** If not null, the game screen audits the memory allocated on every frame. */
+    private AllocationSampler allocationSampler;
 
     @Override
     public void create() {
-        // Initialize the asset manager. We add every aset to the manager so that it can be loaded
-        // inside the LoadingScreen screen. Remember to put the name of the asset in the first
-        // argument, then the type of the asset in the second argument.
+        createTime = TimeUtils.nanoTime();
+
+        // Initialize the asset manager. Only the assets required by the menu are loaded inside
+        // the LoadingScreen screen, so that the user sees the menu as soon as possible. The rest
+        // of the assets are loaded later while the user is in the menu. Every sprite used while
+        // playing is packed in a single atlas (see desktop:packTextures), so that the whole
+        // level can be drawn without changing textures.
         manager = new AssetManager();
-        manager.load("floor.png", Texture.class);
-        manager.load("gameover.png", Texture.class);
-        manager.load("overfloor.png", Texture.class);
-        manager.load("logo.png", Texture.class);
-        manager.load("spike.png", Texture.class);
-        manager.load("player.png", Texture.class);
-        manager.load("audio/die.ogg", Sound.class);
-        manager.load("audio/jump.ogg", Sound.class);
-        manager.load("audio/song.ogg", Music.class);
+        screens = new ScreenRegistry(this);
+
+        // The scores are read in the background while the assets are loading.
+        scores = new ScoreStore(Gdx.files.local("scores.log"), Constants.HIGH_SCORES);
+
+        // If the game was killed while playing (Android does that to apps in the background),
+        // continue that game right away instead of going through the loading screen.
+        Snapshot session = startupReplay == null ? GameScreen.loadSession() : null;
+        if (session != null) {
+            continueSession(session);
+            return;
+        }
+
+        AssetGroup.MENU.load(manager);
+        if (startupReplay != null) {
+            // We are going straight to the game, so everything has to be loaded first.
+            AssetGroup.GAMEPLAY.load(manager);
+            AssetGroup.GAME_OVER.load(manager);
+        }
 
         // Enter the loading screen to load the assets.
-        loadingScreen = new LoadingScreen(this);
-        setScreen(loadingScreen);
+        showScreen(ScreenId.LOADING);
     }
 
     /**
-     * This method is invoked by LoadingScreen when all the assets are loaded. Use this method
-     * as a second-step loader. You can load the rest of the screens here and jump to the main
-     * screen now that everything is loaded.
+     * Go straight to the game screen and continue a saved game there. Only the assets of the
+     * game screen are loaded now, the rest are loaded in the background while playing.
+     *
+     * @param session  the saved game.
+     */
+    private void continueSession(Snapshot session) {
+        AssetGroup.GAMEPLAY.load(manager);
+        manager.finishLoading();
+        for (AssetGroup group : AssetGroup.values()) {
+            if (!group.isLoaded(manager)) {
+                group.load(manager);
+                backgroundLoading = true;
+            }
+        }
+
+        ((GameScreen) screens.get(ScreenId.GAME)).continueSession(session);
+        showScreen(ScreenId.GAME);
+
+        Gdx.app.log("MainGame", "Time to continue saved game: "
+                + TimeUtils.nanosToMillis(TimeUtils.timeSinceNanos(createTime)) + " ms");
+    }
+
+    /**
+     * This method is invoked by LoadingScreen when the assets for the menu are loaded. Use this
+     * method as a second-step loader. You can jump to the main screen now that the menu can be
+     * shown. The rest of the assets are queued to be loaded in the background.
      */
     public void finishLoading() {
-        menuScreen = new es.danirod.jddprototype.game.MenuScreen(this);
-        gameScreen = new GameScreen(this);
-        gameOverScreen = new GameOverScreen(this);
-        creditsScreen = new CreditsScreen(this);
-        setScreen(menuScreen);
+        // Queue the assets that have not been loaded yet, in order of priority.
+        for (AssetGroup group : AssetGroup.values()) {
+            if (!group.isLoaded(manager)) {
+                group.load(manager);
+                backgroundLoading = true;
+            }
+        }
+
+        if (startupReplay != null) {
+            // Go straight to the game and play the replay there.
+            ((GameScreen) screens.get(ScreenId.GAME)).playReplay(startupReplay, startupReplaySpeed);
+            startupReplay = null;
+            showScreen(ScreenId.GAME);
+        } else {
+            showScreen(ScreenId.MENU);
+        }
+
+        Gdx.app.log("MainGame", "Time to interactive menu: "
+                + TimeUtils.nanosToMillis(TimeUtils.timeSinceNanos(createTime)) + " ms"
+                + " (UI resources: " + ui.getLoadTime() + " ms, java heap: "
+                + (Gdx.app.getJavaHeap() / 1024) + " KB, native heap: "
+                + (Gdx.app.getNativeHeap() / 1024) + " KB)");
+    }
+
+    @Override
+    public void dispose() {
+        // Screens release the UI resources when they are disposed, but make sure that nothing
+        // is left in the graphics card when the game closes.
+        screens.dispose();
+        ui.dispose();
+        manager.dispose();
+
+        // Wait for the last scores to be written.
+        scores.dispose();
+
+        // The game was closed on purpose, so the next time it starts from the menu.
+        Gdx.files.local(GameScreen.SESSION_FILE).delete();
+    }
+
+    /**
+     * Go to another screen. The screen is created if it did not exist, and if its assets are
+     * still being loaded in the background, the game waits until they are ready.
+     *
+     * @param id  the id of the screen to show.
+     */
+    public void showScreen(ScreenId id) {
+        if (!screens.isAvailable(id)) {
+            finishBackgroundLoading();
+        }
+        setScreen(screens.get(id));
+        current = id;
+    }
+
+    @Override
+    public void render() {
+        super.render();
+
+        // The loading screen is not going to be used again. It cannot be disposed inside
+        // finishLoading() because it is still rendering at that point.
+        if (current != ScreenId.LOADING) {
+            screens.release(ScreenId.LOADING);
+        }
+
+        // Keep loading the assets in the background, but only for a few milliseconds per frame
+        // so that the menu still feels responsive.
+        if (backgroundLoading) {
+            boolean done = manager.update(Constants.ASSET_LOAD_BUDGET);
+            if (done) {
+                backgroundLoading = false;
+                Gdx.app.log("MainGame", "Every asset loaded after "
+                        + TimeUtils.nanosToMillis(TimeUtils.timeSinceNanos(createTime)) + " ms");
+            }
+        }
+
+        // Have the next screen ready before the user asks for it. This only does something the
+        // first frame its assets are available, because then the screen exists.
+        ScreenId next = current.getLikelyNext();
+        if (next != null) {
+            screens.preload(next);
+        }
+
+        // If the memory is running low, get rid of the screens that are rarely used.
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        if (used > runtime.maxMemory() * Constants.MEMORY_PRESSURE) {
+            screens.trim();
+        }
+    }
+
+    @Override
+    public void pause() {
+        super.pause();
+
+        // The game might be killed while in the background (Android), use less memory.
+        screens.trim();
+    }
+
+    /**
+     * Stop the game until every asset has been loaded. Use this if a screen is required right
+     * now and it cannot wait for the background loading.
+     */
+    public void finishBackgroundLoading() {
+        if (backgroundLoading) {
+            manager.finishLoading();
+            backgroundLoading = false;
+        }
+    }
+
+    /**
+     * Play some replay as soon as the game is loaded, instead of showing the menu. This has to
+     * be called before the application is started, for instance from a launcher.
+     *
+     * @param replay  the replay to play.
+     * @param speed   how many times faster than real time it has to be played.
+     */
+    public void setStartupReplay(Replay replay, int speed) {
+        this.startupReplay = replay;
+        this.startupReplaySpeed = speed;
+    }
+
+    /**
+     * Enable the allocation audit: the game screen will log every frame that allocates memory
+     * and which phases of the frame did it. This has to be called before the application is
+     * started, for instance from a launcher.
+     *
+     * @param sampler  tells how many bytes have been allocated.
+     */
+    public void setAllocationSampler(AllocationSampler sampler) {
+        this.allocationSampler = sampler;
+    }
+
+    public AllocationSampler getAllocationSampler() {
+        return allocationSampler;
+    }
+
+    public ScoreStore getScores() {
+        return scores;
     }
 
     public AssetManager getManager() {
         return manager;
     }
 
+    public UiResources getUi() {
+        return ui;
+    }
+
+    public ScreenRegistry getScreens() {
+        return screens;
+    }
+
 }
@@ -52,12 +52,16 @@ public class MenuScreen extends BaseScreen {
     public MenuScreen(final MainGame game) {
         super(game);
 
-        // Create a new stage, as usual.
-        stage = new Stage(new FitViewport(640, 360));
+        // Borrow the shared UI resources from the game. Every screen uses the same skin and the
+        // same batch, so they are only loaded once (see UiResources).
+        game.getUi().acquire();
 
-        // Load the skin file. The skin file contains information about the skins. It can be
+        // Create a new stage, as usual, but draw it using the shared batch.
+        stage = new Stage(new FitViewport(640, 360), game.getUi().getBatch());
+
+        // Get the skin file. The skin file contains information about the skins. It can be
         // passed to any widget in Scene2D UI to set the style. It just works, amazing.
-        skin = new Skin(Gdx.files.internal("skin/uiskin.json"));
+        skin = game.getUi().getSkin();
 
         // For instance, here you see that I create a new button by telling the label of the
         // button as well as the skin file. The background image for the button is in the skin
@@ -76,14 +80,14 @@ public class MenuScreen extends BaseScreen {
             @Override
             public void changed(ChangeEvent event, Actor actor) {
                 // Take me to the game screen!
-                game.setScreen(game.gameScreen);
+                game.showScreen(ScreenId.GAME);
             }
         });
 
         credits.addCaptureListener(new ChangeListener() {
             @Override
             public void changed(ChangeEvent event, Actor actor) {
-                game.setScreen(game.creditsScreen);
+                game.showScreen(ScreenId.CREDITS);
             }
         });
 
@@ -123,13 +127,16 @@ public class MenuScreen extends BaseScreen {
     public void dispose() {
         // Dispose assets.
         stage.dispose();
-        skin.dispose();
+        game.getUi().release();
     }
 
     @Override
     public void render(float delta) {
         Gdx.gl.glClearColor(0.2f, 0.3f, 0.5f, 1f);
         Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+
+        // The game is still being loaded in the background. You cannot play until it is ready.
+        play.setDisabled(!game.getScreens().isAvailable(ScreenId.GAME));
         stage.act();
         stage.draw();
     }
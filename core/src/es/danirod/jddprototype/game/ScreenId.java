@@ -0,0 +1,71 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package es.danirod.jddprototype.game;
+
+/**
+ * Every screen in the game has an id. The id is what you use to ask the ScreenRegistry for
+ * a screen, so that screens are not created until they are really needed.
+ */
+public enum ScreenId {
+
+    LOADING(null, false),
+    MENU(AssetGroup.MENU, false),
+    CREDITS(AssetGroup.MENU, true),
+    GAME(AssetGroup.GAMEPLAY, false),
+    GAME_OVER(AssetGroup.GAME_OVER, false);
+
+    /** The assets this screen needs before it can be created, or null if it needs none. */
+    private final AssetGroup assets;
+
+    /** Can this screen be disposed to free memory when it is not being used? */
+    private final boolean evictable;
+
+    ScreenId(AssetGroup assets, boolean evictable) {
+        this.assets = assets;
+        this.evictable = evictable;
+    }
+
+    /**
+     * The screen that the user will probably see after this one. The registry preloads it
+     * while this screen is displayed so that changing screens feels instant.
+     *
+     * @return the likely next screen, or null if there is no good guess.
+     */
+    public ScreenId getLikelyNext() {
+        switch (this) {
+            case MENU:
+            case GAME_OVER:
+                return GAME;
+            case GAME:
+                return GAME_OVER;
+            default:
+                return null;
+        }
+    }
+
+    // Getter festival below here.
+
+    public AssetGroup getAssets() {
+        return assets;
+    }
+
+    public boolean isEvictable() {
+        return evictable;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package es.danirod.jddprototype.game;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * This registry creates the screens of the game the first time they are requested instead
+ * of creating all of them when the game starts. For instance, the GameScreen allocates a whole
+ * Box2D world, and there is no reason to do that until the user is about to play.
+ *
+ * Screens that are rarely used (see ScreenId.isEvictable()) can also be disposed when the
+ * memory is running low. They will be created again if the user comes back to them.
+ */
+public class ScreenRegistry implements Disposable {
+
+    /** The game that owns the screens. */
+    private final MainGame game;
+
+    /** Screens created so far, indexed by the ordinal of their id. Null if not created. */
+    private final BaseScreen[] screens;
+
+    public ScreenRegistry(MainGame game) {
+        this.game = game;
+        this.screens = new BaseScreen[ScreenId.values().length];
+    }
+
+    /**
+     * Get the screen for this id, creating it if it has not been created yet. The assets
+     * required by the screen must have been loaded already.
+     *
+     * @param id  the id of the screen you want.
+     * @return the screen.
+     */
+    public BaseScreen get(ScreenId id) {
+        BaseScreen screen = screens[id.ordinal()];
+        if (screen == null) {
+            long start = TimeUtils.nanoTime();
+            screen = create(id);
+            screens[id.ordinal()] = screen;
+            Gdx.app.debug("ScreenRegistry", "Created " + id + " in "
+                    + TimeUtils.nanosToMillis(TimeUtils.timeSinceNanos(start)) + " ms");
+        }
+        return screen;
+    }
+
+    /**
+     * Create the screen now if its assets are already loaded, so that it is ready when the
+     * user asks for it. Does nothing if the screen is already created or cannot be created yet.
+     *
+     * @param id  the id of the screen to preload.
+     */
+    public void preload(ScreenId id) {
+        if (screens[id.ordinal()] == null && isAvailable(id)) {
+            get(id);
+        }
+    }
+
+    /**
+     * Can this screen be created right now? Screens cannot be created until the assets they
+     * use are loaded.
+     *
+     * @param id  the id of the screen.
+     * @return true if the screen already exists or if its assets are loaded.
+     */
+    public boolean isAvailable(ScreenId id) {
+        return screens[id.ordinal()] != null || id.getAssets() == null
+                || id.getAssets().isLoaded(game.getManager());
+    }
+
+    /**
+     * Is the screen created right now?
+     *
+     * @param id  the id of the screen.
+     * @return true if the screen exists.
+     */
+    public boolean isCreated(ScreenId id) {
+        return screens[id.ordinal()] != null;
+    }
+
+    /**
+     * Dispose a screen. If the screen is being displayed right now nothing is done.
+     *
+     * @param id  the id of the screen to dispose.
+     */
+    public void release(ScreenId id) {
+        BaseScreen screen = screens[id.ordinal()];
+        if (screen != null && screen != game.getScreen()) {
+            screen.dispose();
+            screens[id.ordinal()] = null;
+            Gdx.app.debug("ScreenRegistry", "Disposed " + id);
+        }
+    }
+
+    /**
+     * Dispose every evictable screen that is not being displayed right now. Call this when
+     * the memory is running low or when the application goes to the background.
+     */
+    public void trim() {
+        for (ScreenId id : ScreenId.values()) {
+            if (id.isEvictable()) {
+                release(id);
+            }
+        }
+    }
+
+    @Override
+    public void dispose() {
+        Screen current = game.getScreen();
+        for (int i = 0; i < screens.length; i++) {
+            if (screens[i] != null) {
+                if (screens[i] == current) {
+                    current.hide();
+                }
+                screens[i].dispose();
+                screens[i] = null;
+            }
+        }
+    }
+
+    private BaseScreen create(ScreenId id) {
+        switch (id) {
+            case LOADING:
+                return new LoadingScreen(game);
+            case MENU:
+                return new MenuScreen(game);
+            case CREDITS:
+                return new CreditsScreen(game);
+            case GAME:
+                return new GameScreen(game);
+            case GAME_OVER:
+                return new GameOverScreen(game);
+            default:
+                throw new IllegalArgumentException("Unknown screen " + id);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package es.danirod.jddprototype.game;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Every screen in this game needs the same skin, the same font and a batch to draw things.
+ * Instead of having every screen load its own copy of the skin (which means parsing the atlas
+ * and uploading the textures to the graphics card once per screen) and its own SpriteBatch
+ * (which means a big vertex buffer per screen), there is a single instance of this class owned
+ * by MainGame that every screen shares.
+ *
+ * The resources are reference counted. A screen calls acquire() when it is created and release()
+ * when it is disposed. The resources are created when the first screen acquires them and they
+ * are disposed when the last screen releases them.
+ */
+public class UiResources implements Disposable {
+
+    /** Path to the skin file used by every screen. */
+    private static final String SKIN_FILE = "skin/uiskin.json";
+
+    /** The shared skin. Null while nobody is using it. */
+    private Skin skin;
+
+    /** The shared batch. Every Stage that uses this batch must not dispose it. */
+    private SpriteBatch batch;
+
+    /** How many screens are using these resources right now. */
+    private int references;
+
+    /** How many milliseconds it took to load the resources the last time. */
+    private long loadTime;
+
+    /**
+     * Tell the pool that you are going to use these resources. Every call to this method has
+     * to be paired with a call to release() when you are done.
+     *
+     * @return this instance, so that you can chain calls such as acquire().getSkin().
+     */
+    public UiResources acquire() {
+        if (references++ == 0) {
+            long start = TimeUtils.nanoTime();
+            skin = new Skin(Gdx.files.internal(SKIN_FILE));
+            batch = new SpriteBatch();
+            loadTime = TimeUtils.nanosToMillis(TimeUtils.timeSinceNanos(start));
+            Gdx.app.log("UiResources", "UI resources loaded in " + loadTime + " ms");
+        }
+        return this;
+    }
+
+    /**
+     * Tell the pool that you are not going to use these resources anymore. If nobody else is
+     * using them they are disposed.
+     */
+    public void release() {
+        if (references == 0) {
+            throw new GdxRuntimeException("UI resources released more times than acquired");
+        }
+        if (--references == 0) {
+            skin.dispose();
+            batch.dispose();
+            skin = null;
+            batch = null;
+        }
+    }
+
+    /**
+     * Dispose the resources even if there are screens still using them. Only MainGame should
+     * call this, when the whole game is closing.
+     */
+    @Override
+    public void dispose() {
+        if (references > 0) {
+            references = 1;
+            release();
+        }
+    }
+
+    private void checkAcquired() {
+        if (references == 0) {
+            throw new GdxRuntimeException("UI resources used without calling acquire() first");
+        }
+    }
+
+    // Getter festival below here.
+
+    public Skin getSkin() {
+        checkAcquired();
+        return skin;
+    }
+
+    public BitmapFont getFont(String name) {
+        checkAcquired();
+        return skin.getFont(name);
+    }
+
+    public BitmapFont getDefaultFont() {
+        return getFont("default-font");
+    }
+
+    public Batch getBatch() {
+        checkAcquired();
+        return batch;
+    }
+
+    public int getReferences() {
+        return references;
+    }
+
+    public long getLoadTime() {
+        return loadTime;
+    }
+}
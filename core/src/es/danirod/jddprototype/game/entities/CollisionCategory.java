@@ -0,0 +1,72 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package es.danirod.jddprototype.game.entities;
+
+import com.badlogic.gdx.physics.box2d.Filter;
+import com.badlogic.gdx.physics.box2d.Fixture;
+
+/**
+ * The kind of thing a fixture is. This is stored as the user data of the fixture so that
+ * contacts know what has collided. Every category also has some collision bits, so that Box2D
+ * doesn't even try to check collisions between things that don't care about each other, such
+ * as a floor and some spikes. Only the player collides with something.
+ */
+public enum CollisionCategory {
+
+    PLAYER(0x0001, 0x0002 | 0x0004),
+    FLOOR(0x0002, 0x0001),
+    SPIKE(0x0004, 0x0001);
+
+    /** Amount of categories, useful for building tables. */
+    public static final int COUNT = values().length;
+
+    /** The bit that identifies this category. */
+    public final short bits;
+
+    /** The bits of the categories this category can collide with. */
+    public final short mask;
+
+    CollisionCategory(int bits, int mask) {
+        this.bits = (short) bits;
+        this.mask = (short) mask;
+    }
+
+    /**
+     * Make some fixture belong to this category. This sets the user data and the filter data.
+     * @param fixture  the fixture.
+     */
+    public void applyTo(Fixture fixture) {
+        Filter filter = fixture.getFilterData();
+        filter.categoryBits = bits;
+        filter.maskBits = mask;
+        fixture.setFilterData(filter);
+        fixture.setUserData(this);
+    }
+
+    /**
+     * Get the category of some fixture.
+     * @param fixture  the fixture.
+     * @return         the category, or null if the fixture doesn't have a category.
+     */
+    public static CollisionCategory of(Fixture fixture) {
+        Object data = fixture.getUserData();
+        return data instanceof CollisionCategory ? (CollisionCategory) data : null;
+    }
+}
@@ -19,60 +19,76 @@
 package es.danirod.jddprototype.game.entities;
 
 import com.badlogic.gdx.assets.AssetManager;
-import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.physics.box2d.World;
+
+import es.danirod.jddprototype.box2d.Box2DTracker;
 
 /**
- * This class creates entities using Factory Methods.
+ * This class creates entities using Factory Methods. Every texture used by the entities is a
+ * region of the gameplay atlas, so that drawing them doesn't require binding other textures.
  */
 public class EntityFactory {
 
-    private AssetManager manager;
+    /** The regions used by the entities. They are null if there is no asset manager. */
+    private TextureRegion player, floor, overfloor, spike;
 
     /**
      * Create a new entity factory using the provided asset manager.
      * @param manager   the asset manager used to generate things.
      */
     public EntityFactory(AssetManager manager) {
-        this.manager = manager;
+        if (manager != null) {
+            // Looking for regions in an atlas is slow, so do it only once.
+            TextureAtlas atlas = manager.get("gameplay.atlas", TextureAtlas.class);
+            player = atlas.findRegion("player");
+            floor = atlas.findRegion("floor");
+            overfloor = atlas.findRegion("overfloor");
+            spike = atlas.findRegion("spike");
+        }
+    }
+
+    /**
+     * Create a new entity factory that doesn't use any texture. Entities created by this
+     * factory can live in a world but they cannot be drawn, which is fine for simulations that
+     * run without graphics.
+     */
+    public EntityFactory() {
+        this(null);
     }
 
     /**
      * Create a player using the default texture.
-     * @param world     world where the player will have to live in.
+     * @param tracker   tracker of the world where the player will have to live in.
      * @param position  initial position ofr the player in the world (meters,meters).
      * @return          a player.
      */
-    public PlayerEntity createPlayer(World world, Vector2 position) {
-        Texture playerTexture = manager.get("player.png");
-        return new PlayerEntity(world, playerTexture, position);
+    public PlayerEntity createPlayer(Box2DTracker tracker, Vector2 position) {
+        return new PlayerEntity(tracker, player, position);
     }
 
     /**
      * Create floor using the default texture set.
-     * @param world     world where the floor will live in.
+     * @param tracker   tracker of the world where the floor will live in.
      * @param x         horizontal position for the spikes in the world (meters).
      * @param width     width for the floor (meters).
      * @param y         vertical position for the top of this floor (meters).
      * @return          a floor.
      */
-    public FloorEntity createFloor(World world, float x, float width, float y) {
-        Texture floorTexture = manager.get("floor.png");
-        Texture overfloorTexture = manager.get("overfloor.png");
-        return new FloorEntity(world, floorTexture, overfloorTexture, x, width, y);
+    public FloorEntity createFloor(Box2DTracker tracker, float x, float width, float y) {
+        return new FloorEntity(tracker, floor, overfloor, x, width, y);
     }
 
     /**
      * Create spikes using the default texture.
-     * @param world     world where the spikes will live in.
+     * @param tracker   tracker of the world where the spikes will live in.
      * @param x         horizontal position for the spikes in the world (meters).
      * @param y         vertical position for the base of the spikes in the world (meters).
      * @return          some spikes.
      */
-    public SpikeEntity createSpikes(World world, float x, float y) {
-        Texture spikeTexture = manager.get("spike.png");
-        return new SpikeEntity(world, spikeTexture, x, y);
+    public SpikeEntity createSpikes(Box2DTracker tracker, float x, float y) {
+        return new SpikeEntity(tracker, spike, x, y);
     }
 
 }
@@ -0,0 +1,185 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package es.danirod.jddprototype.game.entities;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+
+import es.danirod.jddprototype.box2d.Box2DTracker;
+
+/**
+ * Keeps the entities that are no more used so that they can be used again. Creating and
+ * destroying bodies and fixtures is expensive because it goes through the native side of Box2D.
+ * Instead, entities that are freed are parked: their bodies are deactivated and stay in the
+ * world. When an entity is requested, a parked one is moved to the new place if possible.
+ * The entity factory is only used when there is nothing to reuse.
+ */
+public class EntityPool {
+
+    /** The factory used when there is nothing to reuse. */
+    private EntityFactory factory;
+
+    /** Tracks the bodies of the world where the entities live. */
+    private Box2DTracker tracker;
+
+    /** Parked players. There is usually one, but who knows. */
+    private Array<PlayerEntity> players = new Array<PlayerEntity>();
+
+    /** Parked floors. Floors can only be reused for floors that have the same width. */
+    private Array<FloorEntity> floors = new Array<FloorEntity>();
+
+    /** Parked spikes. */
+    private Array<SpikeEntity> spikes = new Array<SpikeEntity>();
+
+    /** How many entities have been reused and how many had to be created. */
+    private int hits, misses;
+
+    /** How many entities are being used right now. */
+    private int live;
+
+    public EntityPool(EntityFactory factory, Box2DTracker tracker) {
+        this.factory = factory;
+        this.tracker = tracker;
+    }
+
+    /**
+     * Get a player. See EntityFactory.createPlayer.
+     */
+    public PlayerEntity obtainPlayer(Vector2 position) {
+        live++;
+        if (players.size > 0) {
+            hits++;
+            PlayerEntity player = players.pop();
+            player.place(position);
+            return player;
+        }
+        misses++;
+        return factory.createPlayer(tracker, position);
+    }
+
+    /**
+     * Get a floor. See EntityFactory.createFloor.
+     */
+    public FloorEntity obtainFloor(float x, float width, float y) {
+        live++;
+        for (int i = floors.size - 1; i >= 0; i--) {
+            if (floors.get(i).getFloorWidth() == width) {
+                hits++;
+                FloorEntity floor = floors.removeIndex(i);
+                floor.place(x, y);
+                return floor;
+            }
+        }
+        misses++;
+        return factory.createFloor(tracker, x, width, y);
+    }
+
+    /**
+     * Get some spikes. See EntityFactory.createSpikes.
+     */
+    public SpikeEntity obtainSpikes(float x, float y) {
+        live++;
+        if (spikes.size > 0) {
+            hits++;
+            SpikeEntity spike = spikes.pop();
+            spike.place(x, y);
+            return spike;
+        }
+        misses++;
+        return factory.createSpikes(tracker, x, y);
+    }
+
+    /**
+     * Give back a player that is no more used. It is removed from the stage and parked.
+     */
+    public void free(PlayerEntity player) {
+        live--;
+        player.remove();
+        player.park();
+        players.add(player);
+    }
+
+    /**
+     * Give back a floor that is no more used. It is removed from the stage and parked.
+     */
+    public void free(FloorEntity floor) {
+        live--;
+        floor.remove();
+        floor.park();
+        floors.add(floor);
+    }
+
+    /**
+     * Give back some spikes that are no more used. They are removed from the stage and parked.
+     */
+    public void free(SpikeEntity spike) {
+        live--;
+        spike.remove();
+        spike.park();
+        spikes.add(spike);
+    }
+
+    /**
+     * Destroy every parked entity. Entities that are still being used are not touched.
+     */
+    public void clear() {
+        for (PlayerEntity player : players)
+            player.detach();
+        for (FloorEntity floor : floors)
+            floor.detach();
+        for (SpikeEntity spike : spikes)
+            spike.detach();
+        players.clear();
+        floors.clear();
+        spikes.clear();
+    }
+
+    /** Reset the hit and miss counters, for instance when a new game starts. */
+    public void resetStats() {
+        hits = misses = 0;
+    }
+
+    // Getter festival below here.
+
+    /** @return how many entities have been reused since the stats were reset. */
+    public int getHits() {
+        return hits;
+    }
+
+    /** @return how many entities had to be created since the stats were reset. */
+    public int getMisses() {
+        return misses;
+    }
+
+    /** @return how many entities are being used right now. */
+    public int getLive() {
+        return live;
+    }
+
+    /** @return how many entities are parked right now. */
+    public int getParked() {
+        return players.size + floors.size + spikes.size;
+    }
+
+    @Override
+    public String toString() {
+        return "hits=" + hits + " misses=" + misses + " live=" + live + " parked=" + getParked();
+    }
+}
@@ -18,15 +18,17 @@
 
 package es.danirod.jddprototype.game.entities;
 
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef;
 import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.PolygonShape;
-import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.scenes.scene2d.Actor;
 
+import es.danirod.jddprototype.box2d.Box2DTracker;
 import es.danirod.jddprototype.game.Constants;
 
 /**
@@ -37,10 +39,10 @@ import es.danirod.jddprototype.game.Constants;
 public class FloorEntity extends Actor {
 
     /** The textures we use to display the floor, proving that you can use multiple textures. */
-    private Texture floor, overfloor;
+    private TextureRegion floor, overfloor;
 
-    /** The world instance this floor has to live in. */
-    private World world;
+    /** Tracks the bodies of the world this floor has to live in. */
+    private Box2DTracker tracker;
 
     /** The bodies for the floor. You see here the main body for the floor, and the left border. */
     private Body body, leftBody;
@@ -48,31 +50,35 @@ public class FloorEntity extends Actor {
     /** The fixtures assigned to both bodies. This gives bodies shape. */
     private Fixture fixture, leftFixture;
 
+    /** How wide the floor is (meters). The shape of the fixture depends on this value. */
+    private float width;
+
     /**
      * Create a new floor
      *
-     * @param world
+     * @param tracker
      * @param floor
      * @param overfloor
      * @param x  left border for the floor (meters)
      * @param width  how wide the floor is (meters)
      * @param y  top border for the floor (meters)
      */
-    public FloorEntity(World world, Texture floor, Texture overfloor, float x, float width, float y) {
-        this.world = world;
+    public FloorEntity(Box2DTracker tracker, TextureRegion floor, TextureRegion overfloor, float x, float width, float y) {
+        this.tracker = tracker;
         this.floor = floor;
         this.overfloor = overfloor;
+        this.width = width;
 
         // Create the floor body.
         BodyDef def = new BodyDef();                // (1) Provide some definition.
         def.position.set(x + width / 2, y - 0.5f);  // (2) Center the floor in the coordinates given
-        body = world.createBody(def);               // (3) Create the floor. Easy.
+        body = tracker.createBody(def, "floor"); // (3) Create the floor. Easy.
 
         // Give it a box shape.
         PolygonShape box = new PolygonShape();      // (1) Create the polygon shape.
         box.setAsBox(width / 2, 0.5f);              // (2) Give it some size.
-        fixture = body.createFixture(box, 1);       // (3) Create a fixture.
-        fixture.setUserData("floor");               // (4) Set the user data for the fixture.
+        fixture = tracker.createFixture(body, box, 1); // (3) Create a fixture.
+        CollisionCategory.FLOOR.applyTo(fixture);  // (4) Set the category for the fixture.
         box.dispose();                              // (5) Destroy the shape.
 
         // Now create the left body. This body is spiky, if you hit this body, you die. It is
@@ -80,13 +86,13 @@ public class FloorEntity extends Actor {
         // It works the same than the previous one.
         BodyDef leftDef = new BodyDef();
         leftDef.position.set(x, y - 0.55f);
-        leftBody = world.createBody(leftDef);
+        leftBody = tracker.createBody(leftDef, "floor");
 
-        // As well as the fixture. Remember, use spike user data to make it act like an enemy.
+        // As well as the fixture. Remember, use spike category to make it act like an enemy.
         PolygonShape leftBox = new PolygonShape();
         leftBox.setAsBox(0.02f, 0.45f);
-        leftFixture = leftBody.createFixture(leftBox, 1);
-        leftFixture.setUserData("spike");
+        leftFixture = tracker.createFixture(leftBody, leftBox, 1);
+        CollisionCategory.SPIKE.applyTo(leftFixture);
         leftBox.dispose();
 
         // Now place the actor in the stage by converting the coordinates given in meters to px.
@@ -101,8 +107,75 @@ public class FloorEntity extends Actor {
         batch.draw(overfloor, getX(), getY() + 0.9f * getHeight(), getWidth(), 0.1f * getHeight());
     }
 
+    /**
+     * Add the sprites of this floor to some sprite cache that is being built. Floors don't move,
+     * so they can be sent to the graphics card once instead of on every frame. The textures are
+     * repeated once per meter instead of stretched along the whole floor.
+     *
+     * @param cache    the cache that is being built.
+     * @param scratch  some region that can be modified, to avoid creating regions.
+     */
+    public void cache(SpriteCache cache, TextureRegion scratch) {
+        int tiles = getCachedTiles();
+        for (int i = 0; i < tiles; i++) {
+            // The last tile might not be complete, so only use the part of the texture needed.
+            float tileWidth = Math.min(1, width - i);
+            float x = getX() + i * Constants.PIXELS_IN_METER;
+            float w = tileWidth * Constants.PIXELS_IN_METER;
+
+            int floorWidth = Math.round(floor.getRegionWidth() * tileWidth);
+            scratch.setRegion(floor, 0, 0, floorWidth, floor.getRegionHeight());
+            cache.add(scratch, x, getY(), w, getHeight());
+
+            int overfloorWidth = Math.round(overfloor.getRegionWidth() * tileWidth);
+            scratch.setRegion(overfloor, 0, 0, overfloorWidth, overfloor.getRegionHeight());
+            cache.add(scratch, x, getY() + 0.9f * getHeight(), w, 0.1f * getHeight());
+        }
+    }
+
+    /** @return how many sprites cache() adds to the cache. */
+    public int getCachedSprites() {
+        return 2 * getCachedTiles();
+    }
+
+    private int getCachedTiles() {
+        return MathUtils.ceil(width);
+    }
+
+    /**
+     * Move this floor to another place and wake it up. Used to reuse floors instead of creating
+     * new bodies. Floors cannot change their width, because it would change their shape.
+     *
+     * @param x  left border for the floor (meters)
+     * @param y  top border for the floor (meters)
+     */
+    public void place(float x, float y) {
+        body.setTransform(x + width / 2, y - 0.5f, 0);
+        leftBody.setTransform(x, y - 0.55f, 0);
+        tracker.setActive(body, true);
+        tracker.setActive(leftBody, true);
+        setPosition(x * Constants.PIXELS_IN_METER, (y - 1) * Constants.PIXELS_IN_METER);
+    }
+
+    /**
+     * Keep this floor in the world but remove it from the simulation, so that it doesn't
+     * collide with anything until it is placed again.
+     */
+    public void park() {
+        tracker.setActive(body, false);
+        tracker.setActive(leftBody, false);
+    }
+
+    /** @return how wide the floor is (meters). */
+    public float getFloorWidth() {
+        return width;
+    }
+
     public void detach() {
-        body.destroyFixture(fixture);
-        world.destroyBody(body);
+        // Remember to destroy both bodies. Forgetting the left body leaks it in the world.
+        tracker.destroyFixture(body, fixture);
+        tracker.destroyBody(body);
+        tracker.destroyFixture(leftBody, leftFixture);
+        tracker.destroyBody(leftBody);
     }
 }
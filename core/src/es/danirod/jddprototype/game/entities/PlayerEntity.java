@@ -18,17 +18,17 @@
 
 package es.danirod.jddprototype.game.entities;
 
-import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef;
 import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.PolygonShape;
-import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.scenes.scene2d.Actor;
 
+import es.danirod.jddprototype.box2d.Box2DTracker;
+
 /**
  * This is the body the user controls. It has to jump and don't die, like the title of the game
  * says. You can make it jump by touching the screen. Don't let the player touch any spike or
@@ -37,10 +37,10 @@ import com.badlogic.gdx.scenes.scene2d.Actor;
 public class PlayerEntity extends Actor {
 
     /** The player texture. */
-    private Texture texture;
+    private TextureRegion texture;
 
-    /** The world instance this player is in. */
-    private World world;
+    /** Tracks the bodies of the world this player is in. */
+    private Box2DTracker tracker;
 
     /** The body for this player. */
     private Body body;
@@ -69,21 +69,29 @@ public class PlayerEntity extends Actor {
      */
     private boolean mustJump = false;
 
-    public PlayerEntity(World world, Texture texture, Vector2 position) {
-        this.world = world;
+    /**
+     * Position of the body before the last physics tick. Since the world is stepped using a
+     * fixed amount of time, the frame is usually rendered somewhere between two ticks. This
+     * position is used to interpolate the place where the player has to be drawn.
+     */
+    private Vector2 previousPosition = new Vector2();
+
+    public PlayerEntity(Box2DTracker tracker, TextureRegion texture, Vector2 position) {
+        this.tracker = tracker;
         this.texture = texture;
+        this.previousPosition.set(position);
 
         // Create the player body.
         BodyDef def = new BodyDef();                // (1) Create the body definition.
         def.position.set(position);                 // (2) Put the body in the initial position.
         def.type = BodyDef.BodyType.DynamicBody;    // (3) Remember to make it dynamic.
-        body = world.createBody(def);               // (4) Now create the body.
+        body = tracker.createBody(def, "player"); // (4) Now create the body.
 
         // Give it some shape.
         PolygonShape box = new PolygonShape();      // (1) Create the shape.
         box.setAsBox(0.5f, 0.5f);                   // (2) 1x1 meter box.
-        fixture = body.createFixture(box, 3);       // (3) Create the fixture.
-        fixture.setUserData("player");              // (4) Set the user data.
+        fixture = tracker.createFixture(body, box, es.danirod.jddprototype.game.Constants.PLAYER_DENSITY); // (3) Create the fixture.
+        CollisionCategory.PLAYER.applyTo(fixture); // (4) Set the category.
         box.dispose();                              // (5) Destroy the shape.
 
         // Set the size to a value that is big enough to be rendered on the screen.
@@ -92,22 +100,21 @@ public class PlayerEntity extends Actor {
 
     @Override
     public void draw(Batch batch, float parentAlpha) {
-        // Always update the position of the actor when you are going to draw it, so that the
-        // position of the actor on the screen is as accurate as possible to the current position
-        // of the Box2D body.
-        setPosition((body.getPosition().x - 0.5f) * es.danirod.jddprototype.game.Constants.PIXELS_IN_METER,
-                    (body.getPosition().y - 0.5f) * es.danirod.jddprototype.game.Constants.PIXELS_IN_METER);
+        // The position of the actor has already been updated by interpolate() for this frame.
         batch.draw(texture, getX(), getY(), getWidth(), getHeight());
     }
 
-    @Override
-    public void act(float delta) {
-        // Jump when you touch the screen.
-        if (Gdx.input.justTouched()) {
-            jump();
-        }
+    /**
+     * Update the player before a physics tick. Jumps requested by the user are applied here
+     * too, so that they always happen on a tick. Everything that changes the forces or the speed
+     * of the body is done here instead of in act(), because forces are cleared after every step
+     * of the world, and a frame could run more than one step.
+     */
+    public void tick() {
+        // Remember where we were before this tick, so that we can interpolate later.
+        previousPosition.set(body.getPosition());
 
-        // Jump if we were required to jump during a collision.
+        // Jump if we were required to jump during a collision or because of the user.
         if (mustJump) {
             mustJump = false;
             jump();
@@ -124,10 +131,26 @@ public class PlayerEntity extends Actor {
 
         // If the player is jumping, apply some opposite force so that the player falls faster.
         if (jumping) {
-            body.applyForceToCenter(0, -es.danirod.jddprototype.game.Constants.IMPULSE_JUMP * 1.15f, true);
+            body.applyForceToCenter(0, -es.danirod.jddprototype.game.Constants.IMPULSE_JUMP
+                    * es.danirod.jddprototype.game.Constants.JUMP_FALL_FACTOR, true);
         }
     }
 
+    /**
+     * Move the actor to a position between the one before the last tick and the current one.
+     * Always update the position of the actor before drawing it, so that the position of the
+     * actor on the screen is as accurate as possible to the current position of the body.
+     *
+     * @param alpha  how far we are between the last tick and the next one, in range [0,1).
+     */
+    public void interpolate(float alpha) {
+        Vector2 current = body.getPosition();
+        float x = previousPosition.x + (current.x - previousPosition.x) * alpha;
+        float y = previousPosition.y + (current.y - previousPosition.y) * alpha;
+        setPosition((x - 0.5f) * es.danirod.jddprototype.game.Constants.PIXELS_IN_METER,
+                    (y - 0.5f) * es.danirod.jddprototype.game.Constants.PIXELS_IN_METER);
+    }
+
     public void jump() {
         // The player must not be already jumping and be alive to jump.
         if (!jumping && alive) {
@@ -142,13 +165,42 @@ public class PlayerEntity extends Actor {
         }
     }
 
+    /**
+     * Put the player back at the beginning as if it had just been created, so that the same
+     * body can be used for another game.
+     *
+     * @param position  initial position for the player in the world (meters,meters).
+     */
+    public void place(Vector2 position) {
+        body.setTransform(position, 0);
+        body.setLinearVelocity(0, 0);
+        body.setAngularVelocity(0);
+        tracker.setActive(body, true);
+        body.setAwake(true);
+        previousPosition.set(position);
+        alive = true;
+        jumping = false;
+        mustJump = false;
+    }
+
+    /**
+     * Keep this player in the world but remove it from the simulation.
+     */
+    public void park() {
+        tracker.setActive(body, false);
+    }
+
     public void detach() {
-        body.destroyFixture(fixture);
-        world.destroyBody(body);
+        tracker.destroyFixture(body, fixture);
+        tracker.destroyBody(body);
     }
 
     // Getter and setter festival below here.
 
+    public Body getBody() {
+        return body;
+    }
+
     public boolean isAlive() {
         return alive;
     }
@@ -157,6 +209,10 @@ public class PlayerEntity extends Actor {
         this.alive = alive;
     }
 
+    public boolean isJumping() {
+        return jumping;
+    }
+
     public void setJumping(boolean jumping) {
         this.jumping = jumping;
     }
@@ -18,16 +18,17 @@
 
 package es.danirod.jddprototype.game.entities;
 
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef;
 import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.PolygonShape;
-import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.scenes.scene2d.Actor;
 
+import es.danirod.jddprototype.box2d.Box2DTracker;
 import es.danirod.jddprototype.game.Constants;
 
 /**
@@ -38,10 +39,10 @@ import es.danirod.jddprototype.game.Constants;
 public class SpikeEntity extends Actor {
 
     /** Spike texture. */
-    private Texture texture;
+    private TextureRegion texture;
 
-    /** The world this spike is in. */
-    private World world;
+    /** Tracks the bodies of the world this spike is in. */
+    private Box2DTracker tracker;
 
     /** The body assigned to this spike. */
     private Body body;
@@ -52,19 +53,19 @@ public class SpikeEntity extends Actor {
     /**
      * Create some spike
      *
-     * @param world
+     * @param tracker
      * @param texture
      * @param x  horizontal position for the center of the spike (meters)
      * @param y  vertical position for the base of the spike (meters)
      */
-    public SpikeEntity(World world, Texture texture, float x, float y) {
-        this.world = world;
+    public SpikeEntity(Box2DTracker tracker, TextureRegion texture, float x, float y) {
+        this.tracker = tracker;
         this.texture = texture;
 
         // Create the body.
         BodyDef def = new BodyDef();                // (1) Give it some definition.
         def.position.set(x, y + 0.5f);              // (2) Position the body on the world.
-        body = world.createBody(def);               // (3) Create the body.
+        body = tracker.createBody(def, "spike"); // (3) Create the body.
 
         // Now give it a shape.
         PolygonShape box = new PolygonShape();      // (1) We will make a polygon.
@@ -73,8 +74,8 @@ public class SpikeEntity extends Actor {
         vertices[1] = new Vector2(0.5f, -0.5f);
         vertices[2] = new Vector2(0, 0.5f);
         box.set(vertices);                          // (4) And put them in the shape.
-        fixture = body.createFixture(box, 1);       // (5) Create the fixture.
-        fixture.setUserData("spike");               // (6) And set the user data to enemy.
+        fixture = tracker.createFixture(body, box, 1); // (5) Create the fixture.
+        CollisionCategory.SPIKE.applyTo(fixture);  // (6) And set the category to enemy.
         box.dispose();                              // (7) Destroy the shape when you don't need it.
 
         // Position the actor in the screen by converting the meters to pixels.
@@ -87,9 +88,40 @@ public class SpikeEntity extends Actor {
         batch.draw(texture, getX(), getY(), getWidth(), getHeight());
     }
 
+    /**
+     * Add the sprite of this spike to some sprite cache that is being built. Spikes don't move,
+     * so they can be sent to the graphics card once instead of on every frame.
+     *
+     * @param cache  the cache that is being built.
+     */
+    public void cache(SpriteCache cache) {
+        cache.add(texture, getX(), getY(), getWidth(), getHeight());
+    }
+
+    /**
+     * Move this spike to another place and wake it up. Used to reuse spikes instead of creating
+     * new bodies, which is expensive because it has to go through the native side.
+     *
+     * @param x  horizontal position for the center of the spike (meters)
+     * @param y  vertical position for the base of the spike (meters)
+     */
+    public void place(float x, float y) {
+        body.setTransform(x, y + 0.5f, 0);
+        tracker.setActive(body, true);
+        setPosition((x - 0.5f) * Constants.PIXELS_IN_METER, y * Constants.PIXELS_IN_METER);
+    }
+
+    /**
+     * Keep this spike in the world but remove it from the simulation, so that it doesn't
+     * collide with anything until it is placed again.
+     */
+    public void park() {
+        tracker.setActive(body, false);
+    }
+
     public void detach() {
-        body.destroyFixture(fixture);
-        world.destroyBody(body);
+        tracker.destroyFixture(body, fixture);
+        tracker.destroyBody(body);
     }
 
 }
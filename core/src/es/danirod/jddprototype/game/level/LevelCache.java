@@ -0,0 +1,207 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package es.danirod.jddprototype.game.level;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+
+import es.danirod.jddprototype.game.entities.FloorEntity;
+import es.danirod.jddprototype.game.entities.SpikeEntity;
+
+/**
+ * Draws the floors and spikes spawned by a level streamer using a SpriteCache. The level never
+ * moves, so instead of sending every floor and spike to the graphics card on every frame, they
+ * are sent once when the streamer spawns a chunk, and then every chunk is drawn with a single
+ * draw call. Make the group of the streamer invisible when using this actor, or the level will
+ * be drawn twice.
+ *
+ * Every chunk has its own cache inside the SpriteCache, so spawning a chunk only sends that
+ * chunk and removing one sends nothing. The SpriteCache has room for as many chunks as the
+ * streamer can have at the same time, and chunk N always goes into slot N % slots, which is
+ * free because the chunks of a streamer are consecutive. Slots are reserved once and then
+ * redefined, which the SpriteCache does without creating objects.
+ */
+public class LevelCache extends Actor implements Disposable {
+
+    /** The streamer whose entities are drawn. */
+    private LevelStreamer streamer;
+
+    /** The texture where the sprites of the level are. Used to reserve room for the slots. */
+    private Texture texture;
+
+    /** The cache with the sprites of the level. */
+    private SpriteCache cache;
+
+    /** How many sprites every slot can hold. */
+    private int spritesPerChunk;
+
+    /** The cache ID of every slot. */
+    private int[] cacheIds;
+
+    /** The version of the chunk that every slot has, or 0 if it has nothing yet. */
+    private int[] cachedVersions;
+
+    /** The version of the streamer the last time the slots were checked. */
+    private int cachedVersion = -1;
+
+    /** Some region used while building the cache, to avoid creating new regions. */
+    private TextureRegion scratch = new TextureRegion();
+
+    /**
+     * @param streamer         the streamer whose entities are drawn.
+     * @param texture          the texture where the sprites of the floors and spikes are.
+     * @param spritesPerChunk  how many sprites a chunk is expected to have at most. If some
+     *                         chunk has more, the cache is made again, bigger.
+     */
+    public LevelCache(LevelStreamer streamer, Texture texture, int spritesPerChunk) {
+        this.streamer = streamer;
+        this.texture = texture;
+        int slots = streamer.getMaxSpawnedChunks();
+        cacheIds = new int[slots];
+        cachedVersions = new int[slots];
+        reserve(spritesPerChunk);
+    }
+
+    @Override
+    public void draw(Batch batch, float parentAlpha) {
+        if (cachedVersion != streamer.getVersion()) {
+            update();
+        }
+        if (streamer.getSpawnedChunks() == 0) {
+            return;
+        }
+
+        // The sprite cache has its own shader, so the batch has to be stopped while drawing it.
+        // The level is drawn before anything else, so the batch is empty and there is no flush.
+        batch.end();
+        Gdx.gl.glEnable(GL20.GL_BLEND);
+        Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+        cache.setProjectionMatrix(batch.getProjectionMatrix());
+        cache.begin();
+        int first = streamer.getFirstChunk();
+        for (int i = 0; i < streamer.getSpawnedChunks(); i++) {
+            cache.draw(cacheIds[(first + i) % cacheIds.length]);
+        }
+        cache.end();
+        batch.begin();
+    }
+
+    /**
+     * Create the SpriteCache and reserve room for every slot. A cache cannot be redefined with
+     * more sprites than it had when it was created, so every slot is created full of empty
+     * sprites. The last cache is removed and created again when it is redefined, so there is
+     * an empty cache after the slots to keep any of them from being the last one.
+     *
+     * @param spritesPerChunk  how many sprites every slot can hold.
+     */
+    private void reserve(int spritesPerChunk) {
+        this.spritesPerChunk = spritesPerChunk;
+        cache = new SpriteCache(cacheIds.length * spritesPerChunk, false);
+        for (int slot = 0; slot < cacheIds.length; slot++) {
+            cache.beginCache();
+            for (int i = 0; i < spritesPerChunk; i++) {
+                cache.add(texture, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+            }
+            cacheIds[slot] = cache.endCache();
+            cachedVersions[slot] = 0;
+        }
+        cache.beginCache();
+        cache.endCache();
+    }
+
+    /**
+     * Send the sprites of the chunks that have been spawned since the last time to their slots.
+     * Chunks that are still spawned are not sent again.
+     */
+    private void update() {
+        cachedVersion = streamer.getVersion();
+        int chunks = streamer.getSpawnedChunks();
+        if (chunks > cacheIds.length) {
+            throw new IllegalStateException("The streamer has " + chunks + " chunks, but "
+                    + "it said it would not have more than " + cacheIds.length);
+        }
+
+        int first = streamer.getFirstChunk();
+        for (int i = 0; i < chunks; i++) {
+            int slot = (first + i) % cacheIds.length;
+            if (cachedVersions[slot] == streamer.getChunkVersion(i)) {
+                continue;
+            }
+
+            // Make the slots bigger if this chunk has more sprites than expected. Every slot
+            // is lost, so start again from the first chunk.
+            int sprites = countSprites(i);
+            if (sprites > spritesPerChunk) {
+                cache.dispose();
+                reserve(sprites * 2);
+                i = -1;
+                continue;
+            }
+            rebuild(slot, i);
+        }
+    }
+
+    /**
+     * @param chunk  which spawned chunk, 0 is the oldest one.
+     * @return       how many sprites the chunk adds to the cache.
+     */
+    private int countSprites(int chunk) {
+        Array<FloorEntity> floors = streamer.getChunkFloors(chunk);
+        int sprites = streamer.getChunkSpikes(chunk).size;
+        for (int i = 0; i < floors.size; i++) {
+            sprites += floors.get(i).getCachedSprites();
+        }
+        return sprites;
+    }
+
+    /**
+     * Send the sprites of some spawned chunk to some slot.
+     *
+     * @param slot   the slot for the chunk.
+     * @param chunk  which spawned chunk, 0 is the oldest one.
+     */
+    private void rebuild(int slot, int chunk) {
+        Array<FloorEntity> floors = streamer.getChunkFloors(chunk);
+        Array<SpikeEntity> spikes = streamer.getChunkSpikes(chunk);
+
+        // Floors first, so that spikes are drawn over them.
+        cache.beginCache(cacheIds[slot]);
+        for (int i = 0; i < floors.size; i++) {
+            floors.get(i).cache(cache, scratch);
+        }
+        for (int i = 0; i < spikes.size; i++) {
+            spikes.get(i).cache(cache);
+        }
+        cache.endCache();
+        cachedVersions[slot] = streamer.getChunkVersion(chunk);
+    }
+
+    @Override
+    public void dispose() {
+        cache.dispose();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package es.danirod.jddprototype.game.level;
+
+import com.badlogic.gdx.utils.FloatArray;
+
+/**
+ * A piece of level. Chunks are just a description of the floors and spikes that there are
+ * between two horizontal positions. They don't have any body or texture, so they can be
+ * created anywhere. LevelStreamer turns them into entities when the player is near.
+ */
+public class LevelChunk {
+
+    /** The position of this chunk in the level. Chunk N starts at N * CHUNK_SIZE meters. */
+    private int index;
+
+    /** Floors in this chunk, stored as (x, width, y) triplets in meters. */
+    private FloatArray floors = new FloatArray();
+
+    /** Spikes in this chunk, stored as (x, y) pairs in meters. */
+    private FloatArray spikes = new FloatArray();
+
+    public LevelChunk(int index) {
+        this.index = index;
+    }
+
+    /**
+     * Add a floor to this chunk. See EntityFactory.createFloor for the meaning of the values.
+     */
+    public void addFloor(float x, float width, float y) {
+        floors.add(x, width, y);
+    }
+
+    /**
+     * Add some spikes to this chunk. See EntityFactory.createSpikes for the meaning of the values.
+     */
+    public void addSpike(float x, float y) {
+        spikes.add(x, y);
+    }
+
+    /**
+     * Remove everything from this chunk so that it can be reused for another index.
+     */
+    public void reset(int index) {
+        this.index = index;
+        floors.clear();
+        spikes.clear();
+    }
+
+    // Getter festival below here.
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getFloorCount() {
+        return floors.size / 3;
+    }
+
+    public float getFloorX(int i) {
+        return floors.get(3 * i);
+    }
+
+    public float getFloorWidth(int i) {
+        return floors.get(3 * i + 1);
+    }
+
+    public float getFloorY(int i) {
+        return floors.get(3 * i + 2);
+    }
+
+    public int getSpikeCount() {
+        return spikes.size / 2;
+    }
+
+    public float getSpikeX(int i) {
+        return spikes.get(2 * i);
+    }
+
+    public float getSpikeY(int i) {
+        return spikes.get(2 * i + 1);
+    }
+}
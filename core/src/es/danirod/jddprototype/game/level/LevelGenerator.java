@@ -0,0 +1,368 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package es.danirod.jddprototype.game.level;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+import es.danirod.jddprototype.game.Constants;
+
+/**
+ * A level that never ends. Chunks are generated by a worker thread ahead of the player, so the
+ * render thread only has to turn ready chunks into entities. If a chunk is not ready yet,
+ * getChunk() returns null instead of waiting and LevelStreamer tries again in the next frame,
+ * so generation never stalls a frame.
+ *
+ * The content of every chunk only depends on the seed and on the index of the chunk, so the
+ * same seed always generates the same level, no matter how fast the chunks are requested.
+ * Seed 0 is reserved for the original hand-made level (see forSeed()).
+ *
+ * The first chunks are generated when the generator is created and they are kept forever, so
+ * that starting a new game never has to wait for the worker. After that, chunks are recycled:
+ * there is a fixed amount of them going from the worker to the render thread and back.
+ */
+public class LevelGenerator implements LevelSource, Disposable {
+
+    /** Vertical speed of the player right after jumping (m/s). Its mass is its density. */
+    private static final float JUMP_SPEED = Constants.IMPULSE_JUMP / Constants.PLAYER_DENSITY;
+
+    /** How fast the player stops going up and falls while jumping (m/s²). */
+    private static final float JUMP_GRAVITY = Constants.GRAVITY
+            + Constants.IMPULSE_JUMP * Constants.JUMP_FALL_FACTOR / Constants.PLAYER_DENSITY;
+
+    /** Meters run from leaving the floor until landing again. */
+    private static final float JUMP_LENGTH = Constants.PLAYER_SPEED * 2 * JUMP_SPEED / JUMP_GRAVITY;
+
+    /** How tall obstacles are: spikes and the step up to a platform (meters). */
+    private static final float OBSTACLE_HEIGHT = 1;
+
+    /** Meters run during a jump while the bottom of the player is higher than an obstacle. */
+    private static final float CLEAR_LENGTH = Constants.PLAYER_SPEED * 2
+            * (float) Math.sqrt(JUMP_SPEED * JUMP_SPEED - 2 * JUMP_GRAVITY * OBSTACLE_HEIGHT) / JUMP_GRAVITY;
+
+    /** Ticks that the player can be late or early and still jump over two close obstacles. */
+    private static final int GAP_MARGIN_TICKS = 6;
+
+    /**
+     * Meters of free floor between two obstacles. The player has to land after an obstacle
+     * and jump again before the next one. A jump is JUMP_LENGTH long, but the player is only
+     * high enough to go over an obstacle along CLEAR_LENGTH of it. The rest is run going up or
+     * coming down, and between two obstacles the player has to do both: come down after the
+     * first one and go up before the second one. The player is 1 meter wide too, so the gap
+     * has to be 1 + JUMP_LENGTH - CLEAR_LENGTH meters plus the distance run in GAP_MARGIN_TICKS.
+     * With the default constants this is 4.3 + 0.8 meters, rounded up to 6. LevelValidator
+     * checks it.
+     */
+    public static final int MIN_GAP = MathUtils.ceil(1 + JUMP_LENGTH - CLEAR_LENGTH
+            + GAP_MARGIN_TICKS * Constants.PLAYER_SPEED * Constants.STEP_TIME);
+
+    /** Meters of free floor at the beginning of every chunk, but the first one. */
+    private static final int FIRST_OBSTACLE = 2;
+
+    /** Seed of this level. */
+    private final long seed;
+
+    /** The first chunks of the level, always available. */
+    private final LevelChunk[] prologue;
+
+    /** Chunks that the worker has generated, in order. */
+    private final ArrayBlockingQueue<GeneratedChunk> ready;
+
+    /** Chunks that can be used by the worker to generate more level. */
+    private final ArrayBlockingQueue<GeneratedChunk> free;
+
+    /** The chunk given to the streamer the last time, given back on the next request. */
+    private GeneratedChunk current;
+
+    /**
+     * Incremented every time the level is started again. Chunks generated for an old epoch
+     * are thrown away. Only the render thread writes it.
+     */
+    private volatile int epoch;
+
+    /**
+     * The first chunk the worker has to generate for the current epoch. Written by the render
+     * thread right before incrementing the epoch, so the worker sees it once it sees the epoch.
+     */
+    private int firstChunk;
+
+    /** True if chunks after the prologue have been given since the level was started. */
+    private boolean dirty;
+
+    /** If true, getChunk() waits for the worker instead of returning null. */
+    private boolean waitForChunks;
+
+    /** The worker thread. */
+    private final Thread worker;
+
+    /**
+     * Create a new generator and start its worker thread.
+     *
+     * @param seed    the seed of the level.
+     * @param buffer  how many chunks the worker can have ready ahead of the player.
+     */
+    public LevelGenerator(long seed, int buffer) {
+        this.seed = seed;
+
+        // Enough chunks to start a game without waiting, see LevelStreamer.update.
+        int prologueSize = (int) Math.ceil(Constants.STREAM_AHEAD / Constants.CHUNK_SIZE) + 1;
+        prologue = new LevelChunk[prologueSize];
+        RandomXS128 random = new RandomXS128();
+        for (int i = 0; i < prologueSize; i++) {
+            prologue[i] = new LevelChunk(i);
+            generate(seed, i, prologue[i], random);
+        }
+
+        ready = new ArrayBlockingQueue<GeneratedChunk>(buffer);
+        free = new ArrayBlockingQueue<GeneratedChunk>(buffer);
+        for (int i = 0; i < buffer; i++) {
+            free.add(new GeneratedChunk());
+        }
+
+        // The worker starts right after the prologue.
+        firstChunk = prologueSize;
+        worker = new Thread(new Worker(), "LevelGenerator-" + seed);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public LevelGenerator(long seed) {
+        this(seed, 8);
+    }
+
+    /**
+     * Get the level for some seed. Seed 0 is the original level of the game, any other seed
+     * is a generated level. Remember to dispose the level if it is a LevelGenerator.
+     *
+     * @param seed  the seed of the level.
+     * @return the level.
+     */
+    public static LevelSource forSeed(long seed) {
+        return seed == 0 ? StaticLevel.createDefault() : new LevelGenerator(seed);
+    }
+
+    @Override
+    public LevelChunk getChunk(int index) {
+        if (index < prologue.length) {
+            // Asking for the beginning again means that a new game has started.
+            if (index == 0 && dirty) {
+                restart();
+            }
+            return prologue[index];
+        }
+
+        // The streamer asks for chunks in order, so the previous chunk is not needed anymore.
+        recycleCurrent();
+
+        while (true) {
+            GeneratedChunk chunk = waitForChunks ? take() : ready.poll();
+            if (chunk == null) {
+                // Not ready yet, try again in the next frame.
+                return null;
+            }
+            if (chunk.epoch == epoch && chunk.getIndex() == index) {
+                current = chunk;
+                dirty = true;
+                return chunk;
+            }
+            // Generated for an older game, throw it away.
+            free.offer(chunk);
+        }
+    }
+
+    /**
+     * Start generating the level from some chunk instead of from the beginning, for example to
+     * continue a game that was saved. The streamer has to ask for that chunk next.
+     *
+     * @param index  the next chunk that is going to be requested.
+     */
+    public void seek(int index) {
+        restart(Math.max(index, prologue.length));
+        dirty = index >= prologue.length;
+    }
+
+    /**
+     * Start generating the level again after the prologue.
+     */
+    private void restart() {
+        restart(prologue.length);
+    }
+
+    /**
+     * Throw away every chunk that has been generated and generate again from some chunk.
+     */
+    private void restart(int from) {
+        recycleCurrent();
+
+        // Throw away the ready chunks before changing the epoch. Afterwards, the worker could
+        // already have put the first chunk of the new epoch in the queue, and throwing it away
+        // would leave a hole that getChunk() would wait for forever.
+        GeneratedChunk chunk;
+        while ((chunk = ready.poll()) != null) {
+            free.offer(chunk);
+        }
+        firstChunk = from;
+        epoch++;
+        dirty = false;
+    }
+
+    private void recycleCurrent() {
+        if (current != null) {
+            free.offer(current);
+            current = null;
+        }
+    }
+
+    private GeneratedChunk take() {
+        try {
+            return ready.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Generate the beginning of a level right now, without any worker thread. Use this for
+     * tools that need the whole level at once, such as validators.
+     *
+     * @param seed    the seed of the level.
+     * @param chunks  how many chunks have to be generated.
+     * @return a level with the same chunks that a LevelGenerator with this seed would give.
+     */
+    public static StaticLevel generateStatic(long seed, int chunks) {
+        StaticLevel level = new StaticLevel();
+        LevelChunk chunk = new LevelChunk(0);
+        RandomXS128 random = new RandomXS128();
+        for (int i = 0; i < chunks; i++) {
+            generate(seed, i, chunk, random);
+            for (int f = 0; f < chunk.getFloorCount(); f++) {
+                level.addFloor(chunk.getFloorX(f), chunk.getFloorWidth(f), chunk.getFloorY(f));
+            }
+            for (int s = 0; s < chunk.getSpikeCount(); s++) {
+                level.addSpike(chunk.getSpikeX(s), chunk.getSpikeY(s));
+            }
+        }
+        return level;
+    }
+
+    /**
+     * Fill some chunk. Everything comes from a random generator seeded with the seed of the
+     * level and the index of the chunk, so the chunk is always the same.
+     */
+    private static void generate(long seed, int index, LevelChunk chunk, RandomXS128 random) {
+        chunk.reset(index);
+        random.setSeed(seed ^ (index * 0x9E3779B97F4A7C15L));
+        float start = index * Constants.CHUNK_SIZE;
+        float end = start + Constants.CHUNK_SIZE;
+
+        // There is always a floor to run on, like in the original level.
+        chunk.addFloor(start, Constants.CHUNK_SIZE, 1);
+
+        // Then some obstacles: spikes on the floor or platforms that have to be jumped on.
+        // The beginning of the level is free, so that the player has some time to get ready.
+        // The gap between two obstacles has to be at least MIN_GAP, also between the last
+        // obstacle of this chunk and the first one of the next chunk. The first obstacle is
+        // at least FIRST_OBSTACLE meters after the start of the chunk, so the last obstacle
+        // has to end MIN_GAP - FIRST_OBSTACLE meters before the end of the chunk.
+        float x = index == 0 ? start + 8 : start + FIRST_OBSTACLE + random.nextInt(3);
+        float limit = end - (MIN_GAP - FIRST_OBSTACLE);
+        while (x + 1 <= limit) {
+            if (random.nextInt(3) == 0 && x + 4 <= limit) {
+                float width = Math.min(limit - x, 4 + random.nextInt(5));
+                chunk.addFloor(x, width, 2);
+                if (width >= MIN_GAP + 1 && random.nextBoolean()) {
+                    // Climbing the platform is an obstacle too, so the spike on top of it
+                    // needs the same gap after the edge of the platform.
+                    chunk.addSpike(x + MIN_GAP + 0.5f, 2);
+                }
+                x += width;
+            } else {
+                // Spikes are placed by their center, x is where this one starts.
+                chunk.addSpike(x + 0.5f, 1);
+                x += 1;
+            }
+            x += MIN_GAP + random.nextInt(4);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        worker.interrupt();
+        try {
+            worker.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * If true, getChunk() waits for the worker when the chunk is not ready instead of returning
+     * null. Use this when the simulation runs faster than real time, such as when playing a
+     * replay without graphics, so that no chunk is missed.
+     */
+    public void setWaitForChunks(boolean waitForChunks) {
+        this.waitForChunks = waitForChunks;
+    }
+
+    // Getter festival below here.
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /** A chunk plus the epoch it was generated for. */
+    private static class GeneratedChunk extends LevelChunk {
+        int epoch;
+
+        GeneratedChunk() {
+            super(-1);
+        }
+    }
+
+    /** Keeps generating chunks while there are free chunks. */
+    private class Worker implements Runnable {
+        @Override
+        public void run() {
+            int workerEpoch = -1, next = 0;
+            RandomXS128 random = new RandomXS128();
+            try {
+                while (true) {
+                    GeneratedChunk chunk = free.take();
+                    int currentEpoch = epoch;
+                    if (currentEpoch != workerEpoch) {
+                        workerEpoch = currentEpoch;
+                        next = firstChunk;
+                    }
+                    generate(seed, next++, chunk, random);
+                    chunk.epoch = workerEpoch;
+                    ready.put(chunk);
+                }
+            } catch (InterruptedException e) {
+                // The generator has been disposed.
+            } catch (RuntimeException e) {
+                throw new GdxRuntimeException("Level generator " + seed + " failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package es.danirod.jddprototype.game.level;
+
+/**
+ * Something that can provide the chunks of a level. The level could be written by hand, read
+ * from a file or generated on the fly.
+ */
+public interface LevelSource {
+
+    /**
+     * Get some chunk of the level.
+     * @param index  the index of the chunk. Chunk N starts at N * CHUNK_SIZE meters.
+     * @return       the chunk, or null if the level doesn't have that chunk.
+     */
+    LevelChunk getChunk(int index);
+}
@@ -0,0 +1,235 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package es.danirod.jddprototype.game.level;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+import com.badlogic.gdx.utils.Queue;
+
+import es.danirod.jddprototype.game.Constants;
+import es.danirod.jddprototype.game.entities.EntityPool;
+import es.danirod.jddprototype.game.entities.FloorEntity;
+import es.danirod.jddprototype.game.entities.SpikeEntity;
+import es.danirod.jddprototype.scene2d.CullingGroup;
+
+/**
+ * Turns the chunks of a level into entities while the player moves. Chunks are spawned some
+ * distance ahead of the player and they are removed once they are left some distance behind,
+ * so the amount of bodies in the world and actors in the stage is the same no matter how long
+ * the level is. Entities come from an EntityPool, so streaming doesn't create bodies once the
+ * pool has enough of them.
+ */
+public class LevelStreamer {
+
+    /** The pool where the entities come from and where they go back. */
+    private EntityPool pool;
+
+    /** The level that is being streamed. */
+    private LevelSource source;
+
+    /** How many meters ahead of the player chunks have to be spawned. */
+    private float ahead;
+
+    /** How many meters behind the player chunks can be removed. */
+    private float behind;
+
+    /**
+     * Every spawned entity is added to this group. Add this group to a stage to render the level.
+     * The group is not transformed, so that drawing it doesn't flush the batch, and it only acts
+     * and draws the entities that are near the camera.
+     */
+    private CullingGroup group = new CullingGroup(Constants.PIXELS_IN_METER);
+
+    /** The chunks that have entities right now, in order. */
+    private Queue<SpawnedChunk> spawned = new Queue<SpawnedChunk>();
+
+    /** The next chunk that has to be spawned. */
+    private int nextChunk;
+
+    /** Changes every time a chunk is spawned or removed, so others know the level changed. */
+    private int version;
+
+    /** Spawned chunks are reused, to avoid creating garbage every time a chunk is spawned. */
+    private Pool<SpawnedChunk> chunkPool = new Pool<SpawnedChunk>() {
+        @Override
+        protected SpawnedChunk newObject() {
+            return new SpawnedChunk();
+        }
+    };
+
+    public LevelStreamer(EntityPool pool, float ahead, float behind) {
+        this.pool = pool;
+        this.ahead = ahead;
+        this.behind = behind;
+    }
+
+    /**
+     * Start streaming some level from the beginning. Anything that was spawned is removed.
+     * @param source  the level to stream.
+     */
+    public void start(LevelSource source) {
+        start(source, 0);
+    }
+
+    /**
+     * Start streaming some level from some chunk, as if every previous chunk had already been
+     * left behind. Used to continue a saved game without spawning the whole level up to there.
+     *
+     * @param source  the level to stream.
+     * @param first   the first chunk that has to be spawned.
+     */
+    public void start(LevelSource source, int first) {
+        clear();
+        this.source = source;
+        this.nextChunk = first;
+        if (first > 0 && source instanceof LevelGenerator) {
+            // Generated levels are made in order, tell the worker where to begin.
+            ((LevelGenerator) source).seek(first);
+        }
+    }
+
+    /**
+     * Spawn the chunks that are near the player and remove the ones that are far behind.
+     * This must not be called while the world is being stepped.
+     *
+     * @param x  horizontal position of the player (meters).
+     */
+    public void update(float x) {
+        // Spawn chunks that are going to be seen soon.
+        while (nextChunk * Constants.CHUNK_SIZE < x + ahead) {
+            LevelChunk chunk = source.getChunk(nextChunk);
+            if (chunk == null) {
+                // The level is over or the chunk is not ready yet. Try again later.
+                break;
+            }
+            spawn(chunk);
+            nextChunk++;
+        }
+
+        // Remove the chunks that we have already left behind.
+        while (spawned.size > 0 && (spawned.first().index + 1) * Constants.CHUNK_SIZE < x - behind) {
+            despawn(spawned.removeFirst());
+        }
+    }
+
+    /**
+     * Remove every entity that has been spawned.
+     */
+    public void clear() {
+        while (spawned.size > 0) {
+            despawn(spawned.removeFirst());
+        }
+    }
+
+    private void spawn(LevelChunk chunk) {
+        SpawnedChunk entities = chunkPool.obtain();
+        entities.index = chunk.getIndex();
+        for (int i = 0; i < chunk.getFloorCount(); i++) {
+            FloorEntity floor = pool.obtainFloor(chunk.getFloorX(i),
+                    chunk.getFloorWidth(i), chunk.getFloorY(i));
+            entities.floors.add(floor);
+            group.addActor(floor);
+        }
+        for (int i = 0; i < chunk.getSpikeCount(); i++) {
+            SpikeEntity spike = pool.obtainSpikes(chunk.getSpikeX(i), chunk.getSpikeY(i));
+            entities.spikes.add(spike);
+            group.addActor(spike);
+        }
+        spawned.addLast(entities);
+        entities.version = ++version;
+    }
+
+    private void despawn(SpawnedChunk entities) {
+        for (FloorEntity floor : entities.floors)
+            pool.free(floor);
+        for (SpikeEntity spike : entities.spikes)
+            pool.free(spike);
+        chunkPool.free(entities);
+        version++;
+    }
+
+    // Getter festival below here.
+
+    public CullingGroup getGroup() {
+        return group;
+    }
+
+    /** @return a number that changes every time the spawned entities change. */
+    public int getVersion() {
+        return version;
+    }
+
+    /** @return the oldest chunk that has entities right now, or the next one if none has. */
+    public int getFirstChunk() {
+        return spawned.size > 0 ? spawned.first().index : nextChunk;
+    }
+
+    /** @return how many chunks have entities right now. */
+    public int getSpawnedChunks() {
+        return spawned.size;
+    }
+
+    /**
+     * @return the most chunks that can have entities at the same time. A chunk is spawned
+     *         once it starts less than {@code ahead} meters in front of the player and it is
+     *         removed once it ends more than {@code behind} meters behind, so this is never more
+     *         than the chunks that fit in that window plus the one that is cut by its border.
+     */
+    public int getMaxSpawnedChunks() {
+        return MathUtils.ceil((ahead + behind) / Constants.CHUNK_SIZE) + 1;
+    }
+
+    /**
+     * @param i  which spawned chunk, 0 is the oldest one.
+     * @return   a number that is different for every chunk that is spawned, even if the same
+     *           chunk is spawned again after restarting the level.
+     */
+    public int getChunkVersion(int i) {
+        return spawned.get(i).version;
+    }
+
+    /** @param i  which spawned chunk, 0 is the oldest one. */
+    public Array<FloorEntity> getChunkFloors(int i) {
+        return spawned.get(i).floors;
+    }
+
+    /** @param i  which spawned chunk, 0 is the oldest one. */
+    public Array<SpikeEntity> getChunkSpikes(int i) {
+        return spawned.get(i).spikes;
+    }
+
+    /**
+     * The entities that have been spawned for a single chunk, so that they can be removed
+     * together once the chunk is left behind.
+     */
+    private static class SpawnedChunk implements Pool.Poolable {
+        int index;
+        int version;
+        Array<FloorEntity> floors = new Array<FloorEntity>();
+        Array<SpikeEntity> spikes = new Array<SpikeEntity>();
+
+        @Override
+        public void reset() {
+            floors.clear();
+            spikes.clear();
+        }
+    }
+}
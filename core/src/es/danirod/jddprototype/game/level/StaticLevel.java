@@ -0,0 +1,96 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package es.danirod.jddprototype.game.level;
+
+import com.badlogic.gdx.utils.Array;
+
+import es.danirod.jddprototype.game.Constants;
+
+/**
+ * A level that is known beforehand. Floors and spikes can be added anywhere in the level and
+ * they are split into chunks automatically. Floors wider than a chunk are split into several
+ * floors, so that no entity crosses a chunk border.
+ */
+public class StaticLevel implements LevelSource {
+
+    /** The chunks of this level. */
+    private Array<LevelChunk> chunks = new Array<LevelChunk>();
+
+    /**
+     * Add a floor to the level. See EntityFactory.createFloor for the meaning of the values.
+     */
+    public StaticLevel addFloor(float x, float width, float y) {
+        float end = x + width;
+        while (x < end) {
+            // Cut the floor at the end of the chunk where it starts.
+            int index = chunkAt(x);
+            float chunkEnd = (index + 1) * Constants.CHUNK_SIZE;
+            float pieceWidth = Math.min(end, chunkEnd) - x;
+            getOrCreate(index).addFloor(x, pieceWidth, y);
+            x += pieceWidth;
+        }
+        return this;
+    }
+
+    /**
+     * Add some spikes to the level. See EntityFactory.createSpikes for the meaning of the values.
+     */
+    public StaticLevel addSpike(float x, float y) {
+        getOrCreate(chunkAt(x)).addSpike(x, y);
+        return this;
+    }
+
+    @Override
+    public LevelChunk getChunk(int index) {
+        return index >= 0 && index < chunks.size ? chunks.get(index) : null;
+    }
+
+    private int chunkAt(float x) {
+        return (int) Math.floor(x / Constants.CHUNK_SIZE);
+    }
+
+    private LevelChunk getOrCreate(int index) {
+        while (chunks.size <= index) {
+            chunks.add(new LevelChunk(chunks.size));
+        }
+        return chunks.get(index);
+    }
+
+    /**
+     * @return the level that has been used in the game since the first version.
+     */
+    public static StaticLevel createDefault() {
+        StaticLevel level = new StaticLevel();
+
+        // This is the main floor. That is why is so long.
+        level.addFloor(0, 1000, 1);
+
+        // Now generate some floors over the main floor.
+        level.addFloor(15, 10, 2);
+        level.addFloor(30, 8, 2);
+
+        // Generate some spikes too.
+        level.addSpike(8, 1);
+        level.addSpike(23, 2);
+        level.addSpike(35, 2);
+        level.addSpike(50, 1);
+        return level;
+    }
+}
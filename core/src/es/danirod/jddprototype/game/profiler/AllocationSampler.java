@@ -0,0 +1,33 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package es.danirod.jddprototype.game.profiler;
+
+/**
+ * Tells how many bytes the current thread has allocated. There is no portable way of knowing
+ * this, so the core doesn't implement it. The desktop launcher provides one based on the
+ * allocation counters of the JVM when the allocation audit is requested.
+ */
+public interface AllocationSampler {
+
+    /**
+     * @return bytes allocated by the current thread so far. Only the difference between two
+     *         calls is meaningful, and calling this method must not count as an allocation.
+     */
+    long allocatedBytes();
+}
@@ -0,0 +1,325 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package es.danirod.jddprototype.game.profiler;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.profiling.GLProfiler;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.StringBuilder;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * This profiler tells how long every phase of a frame takes, so that you can know what is
+ * eating the frame on a real device. Call beginFrame() at the beginning of the frame, mark()
+ * after every phase, and endFrame() at the end. It also counts the draw calls, texture bindings
+ * and vertices sent to the graphics card using a GLProfiler.
+ *
+ * The last frames are kept in preallocated buffers, so the percentiles can be computed and the
+ * overlay can be drawn without allocating memory. When the profiler is disabled every method
+ * returns immediately and the GLProfiler is not intercepting GL calls, so it costs nothing.
+ *
+ * If an AllocationSampler is given, the profiler also audits allocations: it counts the bytes
+ * allocated by every phase, and every frame that allocates something is logged together with
+ * the phases that allocated. A steady gameplay frame should not allocate anything.
+ */
+public class FrameProfiler {
+
+    /** These are the things that are measured on every frame. */
+    public enum Metric {
+        CLEAR("clear", true),
+        ACT("act", true),
+        PHYSICS("physics", true),
+        CAMERA("camera", true),
+        DRAW("draw", true),
+        FRAME("frame", true),
+        DRAW_CALLS("draw calls", false),
+        TEXTURE_BINDINGS("texture binds", false),
+        VERTICES("vertices", false),
+        ALLOCATED("allocated bytes", false);
+
+        /** Name of the metric in the overlay and in the CSV file. */
+        public final String label;
+
+        /** True if the metric is a time in nanoseconds. */
+        public final boolean time;
+
+        Metric(String label, boolean time) {
+            this.label = label;
+            this.time = time;
+        }
+    }
+
+    private static final Metric[] METRICS = Metric.values();
+
+    /** How many frames are kept. Less than 286 so that Arrays.sort does not allocate memory. */
+    public static final int WINDOW = 256;
+
+    /** Samples of every metric for the last frames. It is a ring buffer indexed by cursor. */
+    private final long[][] samples = new long[METRICS.length][WINDOW];
+
+    /** Used to sort the samples when computing percentiles. */
+    private final long[] sorted = new long[WINDOW];
+
+    /** Percentiles of every metric, updated when the overlay is drawn. */
+    private final long[][] percentiles = new long[METRICS.length][3];
+
+    /** Where the next frame is stored. */
+    private int cursor;
+
+    /** How many frames have been recorded, up to WINDOW. */
+    private int frames;
+
+    /** When the frame and the last phase began. */
+    private long frameStart, phaseStart;
+
+    private final GLProfiler glProfiler;
+
+    private boolean enabled;
+
+    /** If not null, the allocations of every frame and phase are audited. */
+    private AllocationSampler sampler;
+
+    /** Bytes allocated so far when the frame and the last phase began. */
+    private long frameBytes, phaseBytes;
+
+    /** Bytes allocated by every phase of the current frame. */
+    private final long[] phaseAllocations = new long[METRICS.length];
+
+    /** How many frames have been profiled since the profiler was enabled. */
+    private long frameNumber;
+
+    /** Text of the audit messages. Reused on every frame. */
+    private final StringBuilder audit = new StringBuilder(256);
+
+    /** Text of the overlay. Reused on every frame. */
+    private final StringBuilder text = new StringBuilder(512);
+
+    /** Used to draw the overlay in screen coordinates. */
+    private final Matrix4 overlayProjection = new Matrix4();
+
+    public FrameProfiler() {
+        glProfiler = new GLProfiler(Gdx.graphics);
+    }
+
+    public void setEnabled(boolean enabled) {
+        if (enabled == this.enabled) {
+            return;
+        }
+        this.enabled = enabled;
+        if (enabled) {
+            glProfiler.enable();
+            cursor = frames = 0;
+            frameNumber = 0;
+        } else {
+            glProfiler.disable();
+        }
+    }
+
+    public void beginFrame() {
+        if (!enabled) {
+            return;
+        }
+        glProfiler.reset();
+        if (sampler != null) {
+            Arrays.fill(phaseAllocations, 0);
+            frameBytes = phaseBytes = sampler.allocatedBytes();
+        }
+        frameStart = phaseStart = System.nanoTime();
+    }
+
+    /**
+     * The phase has finished. Time since the last phase is stored for this metric.
+     *
+     * @param phase  the phase that has just finished.
+     */
+    public void mark(Metric phase) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        samples[phase.ordinal()][cursor] = now - phaseStart;
+        if (sampler != null) {
+            long bytes = sampler.allocatedBytes();
+            phaseAllocations[phase.ordinal()] = bytes - phaseBytes;
+            phaseBytes = bytes;
+        }
+        phaseStart = System.nanoTime();
+    }
+
+    public void endFrame() {
+        if (!enabled) {
+            return;
+        }
+        samples[Metric.FRAME.ordinal()][cursor] = System.nanoTime() - frameStart;
+        samples[Metric.DRAW_CALLS.ordinal()][cursor] = glProfiler.getDrawCalls();
+        samples[Metric.TEXTURE_BINDINGS.ordinal()][cursor] = glProfiler.getTextureBindings();
+        samples[Metric.VERTICES.ordinal()][cursor] = (long) glProfiler.getVertexCount().total;
+        if (sampler != null) {
+            long allocated = sampler.allocatedBytes() - frameBytes;
+            samples[Metric.ALLOCATED.ordinal()][cursor] = allocated;
+            if (allocated > 0) {
+                logAllocations(allocated);
+            }
+        }
+        cursor = (cursor + 1) % WINDOW;
+        frames = Math.min(frames + 1, WINDOW);
+        frameNumber++;
+    }
+
+    /**
+     * Tell which phases allocated memory during this frame. This allocates too, but it
+     * happens after the frame has been measured.
+     */
+    private void logAllocations(long allocated) {
+        audit.setLength(0);
+        audit.append("Frame ").append(frameNumber).append(" allocated ").append(allocated).append(" bytes:");
+        for (Metric metric : METRICS) {
+            long bytes = phaseAllocations[metric.ordinal()];
+            if (bytes > 0) {
+                audit.append(' ').append(metric.label).append('=').append(bytes);
+            }
+        }
+        Gdx.app.log("FrameProfiler", audit.toString());
+    }
+
+    /**
+     * Get some percentile of the recorded frames.
+     *
+     * @param metric  the metric.
+     * @param percentile  the percentile, from 0 to 100.
+     * @return the value of the metric, nanoseconds for times.
+     */
+    public long getPercentile(Metric metric, int percentile) {
+        if (frames == 0) {
+            return 0;
+        }
+        System.arraycopy(samples[metric.ordinal()], 0, sorted, 0, frames);
+        Arrays.sort(sorted, 0, frames);
+        int index = Math.min(frames - 1, frames * percentile / 100);
+        return sorted[index];
+    }
+
+    /**
+     * Draw the percentiles on top of the screen. The batch must not be drawing.
+     *
+     * @param batch  the batch used to draw the text.
+     * @param font  the font used to draw the text.
+     */
+    public void draw(Batch batch, BitmapFont font) {
+        if (!enabled) {
+            return;
+        }
+        for (Metric metric : METRICS) {
+            percentiles[metric.ordinal()][0] = getPercentile(metric, 50);
+            percentiles[metric.ordinal()][1] = getPercentile(metric, 95);
+            percentiles[metric.ordinal()][2] = getPercentile(metric, 99);
+        }
+
+        text.setLength(0);
+        text.append("p50 / p95 / p99 of ").append(frames).append(" frames, times in us\n");
+        for (Metric metric : METRICS) {
+            long[] values = percentiles[metric.ordinal()];
+            text.append(metric.label).append(": ");
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    text.append(" / ");
+                }
+                text.append(metric.time ? values[i] / 1000 : values[i]);
+            }
+            text.append('\n');
+        }
+
+        overlayProjection.setToOrtho2D(0, 0, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+        batch.setProjectionMatrix(overlayProjection);
+        batch.begin();
+        font.draw(batch, text, 10, Gdx.graphics.getHeight() - 10);
+        batch.end();
+    }
+
+    /**
+     * Write every recorded frame as CSV, the oldest frame first. Times are in microseconds.
+     *
+     * @param writer  where to write the CSV.
+     * @throws IOException  if the writer fails.
+     */
+    public void writeCsv(Writer writer) throws IOException {
+        writer.write("frame");
+        for (Metric metric : METRICS) {
+            writer.write(',');
+            writer.write(metric.name().toLowerCase());
+        }
+        writer.write('\n');
+
+        int first = frames < WINDOW ? 0 : cursor;
+        for (int i = 0; i < frames; i++) {
+            int index = (first + i) % WINDOW;
+            writer.write(Integer.toString(i));
+            for (Metric metric : METRICS) {
+                long value = samples[metric.ordinal()][index];
+                writer.write(',');
+                writer.write(Long.toString(metric.time ? value / 1000 : value));
+            }
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * Write every recorded frame to a CSV file. Errors are logged, not thrown, because the
+     * profiler is not important enough to stop the game.
+     *
+     * @param file  the file to write.
+     */
+    public void exportCsv(FileHandle file) {
+        Writer writer = null;
+        try {
+            writer = file.writer(false, "UTF-8");
+            writeCsv(writer);
+            Gdx.app.log("FrameProfiler", "Saved " + frames + " frames to " + file.path());
+        } catch (Exception e) {
+            Gdx.app.error("FrameProfiler", "Cannot save profile to " + file.path(), e);
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    // Getter festival below here.
+
+    public void setAllocationSampler(AllocationSampler sampler) {
+        this.sampler = sampler;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getFrames() {
+        return frames;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package es.danirod.jddprototype.game.score;
+
+/**
+ * The result of a single game: how far the player went before dying, in which level and when.
+ * Scores never change once they are created, so they can be shared between threads.
+ */
+public class Score {
+
+    /** The seed of the level that was played. 0 for the default level. */
+    private final long seed;
+
+    /** How many ticks the player survived. */
+    private final int ticks;
+
+    /** How many meters the player ran. */
+    private final float distance;
+
+    /** When the game ended, in milliseconds since the epoch. */
+    private final long time;
+
+    public Score(long seed, int ticks, float distance, long time) {
+        this.seed = seed;
+        this.ticks = ticks;
+        this.distance = distance;
+        this.time = time;
+    }
+
+    /**
+     * @param other  some other score.
+     * @return       true if this score should be ranked before the other one. Running further
+     *               is better, and for the same distance, the oldest score keeps its place.
+     */
+    public boolean beats(Score other) {
+        return distance > other.distance || (distance == other.distance && time < other.time);
+    }
+
+    @Override
+    public String toString() {
+        return (int) distance + " m";
+    }
+
+    // Getter festival below here.
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getTicks() {
+        return ticks;
+    }
+
+    public float getDistance() {
+        return distance;
+    }
+
+    public long getTime() {
+        return time;
+    }
+}
@@ -0,0 +1,423 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package es.danirod.jddprototype.game.score;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.TimeUtils;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the best scores of the player on disk. Writing to the flash memory of a phone can take
+ * a long time, so scores are never written by the render thread. submit() only updates the
+ * ranking in memory, which can be displayed right away, and puts the score in a queue. A
+ * writer thread takes every score waiting in the queue and appends all of them to a log file
+ * at once.
+ *
+ * The log only grows, so from time to time it is compacted: the best scores are written to a
+ * new file that replaces the log. Android can kill the app at any moment, even while writing,
+ * so every record has a checksum. When the log is read again, it is read up to the first record
+ * with a wrong checksum and cut there, throwing away that record and everything after it. A
+ * compacted file that was not completely written is ignored because the old log is only
+ * replaced once the new one is safely on disk.
+ *
+ * <pre>
+ * magic     4 bytes  "JDDS"
+ * version   1 byte   1
+ * records   28 bytes each:
+ *   seed      8 bytes
+ *   ticks     4 bytes
+ *   distance  4 bytes  float
+ *   time      8 bytes  milliseconds since the epoch
+ *   checksum  4 bytes  CRC32 of the previous fields
+ * </pre>
+ */
+public class ScoreStore implements Disposable {
+
+    private static final byte[] MAGIC = { 'J', 'D', 'D', 'S' };
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = MAGIC.length + 1;
+
+    private static final int RECORD_SIZE = 8 + 4 + 4 + 8 + 4;
+
+    /** How many records more than the ranking can be in the log before it is compacted. */
+    private static final int COMPACT_SLACK = 64;
+
+    /** Put in the queue to tell the writer thread that it has to finish. */
+    private static final Score STOP = new Score(0, 0, 0, 0);
+
+    /** The log, and the file where the log is compacted before replacing it. */
+    private final File file, compacted;
+
+    /**
+     * The best scores, from best to worst, including scores that are still waiting to be
+     * written. Shared by the render thread and the writer thread, use it synchronized.
+     */
+    private final Score[] top;
+    private int topSize;
+
+    /** The last score that has been submitted. Null if no game has ended yet. */
+    private Score last;
+
+    /** Scores that have been submitted but not written yet. */
+    private final ArrayBlockingQueue<Score> pending = new ArrayBlockingQueue<Score>(64);
+
+    /** The thread that reads the log and writes the scores to it. */
+    private final Thread writer;
+
+    /** Has the log been read already? Until then, the ranking only has the new scores. */
+    private volatile boolean loaded;
+
+    /**
+     * Create the store and start its writer thread. The log is read by the writer thread, so
+     * the ranking might be incomplete for a few milliseconds. See isLoaded().
+     *
+     * @param file  where the log is. It is created if it does not exist.
+     * @param size  how many of the best scores are kept.
+     */
+    public ScoreStore(FileHandle file, int size) {
+        this.file = file.file();
+        this.compacted = new File(this.file.getPath() + ".tmp");
+        this.top = new Score[size];
+
+        writer = new Thread(new Writer(), "ScoreStore");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Add the score of a game that has just ended. This method does not touch the disk, so it
+     * can be called from the render thread, even while the simulation is running.
+     *
+     * @param seed      the seed of the level that was played.
+     * @param ticks     how many ticks the player survived.
+     * @param distance  how many meters the player ran.
+     * @return          the new score.
+     */
+    public Score submit(long seed, int ticks, float distance) {
+        Score score = new Score(seed, ticks, distance, TimeUtils.millis());
+        synchronized (this) {
+            last = score;
+            topSize = insert(top, topSize, score);
+        }
+        if (!pending.offer(score)) {
+            // The writer is stuck. Keep the score in memory at least, do not wait for it.
+            Gdx.app.error("ScoreStore", "Too many scores waiting to be written, " + score + " is lost");
+        }
+        return score;
+    }
+
+    /**
+     * Wait until every submitted score has been written and stop the writer thread. The store
+     * cannot be used after this.
+     */
+    @Override
+    public void dispose() {
+        try {
+            if (pending.offer(STOP, 1, TimeUnit.SECONDS)) {
+                writer.join(1000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Put some score in its place inside a ranking. If the ranking is full, the worst score
+     * is removed, unless the new score is even worse.
+     *
+     * @param ranking  the scores, from best to worst.
+     * @param size     how many scores there are in the ranking.
+     * @param score    the new score.
+     * @return         how many scores there are in the ranking now.
+     */
+    private static int insert(Score[] ranking, int size, Score score) {
+        int index = size;
+        while (index > 0 && score.beats(ranking[index - 1])) {
+            index--;
+        }
+        if (index >= ranking.length) {
+            return size;
+        }
+        System.arraycopy(ranking, index, ranking, index + 1, Math.min(size, ranking.length - 1) - index);
+        ranking[index] = score;
+        return Math.min(size + 1, ranking.length);
+    }
+
+    // Getter festival below here.
+
+    /** @return how many scores there are in the ranking. */
+    public synchronized int getTopSize() {
+        return topSize;
+    }
+
+    /**
+     * @param index  the position in the ranking, starting from 0 for the best score.
+     * @return       the score at that position.
+     */
+    public synchronized Score getTop(int index) {
+        return top[index];
+    }
+
+    public synchronized Score getLast() {
+        return last;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Everything that touches the disk happens here. The writer keeps its own ranking with the
+     * scores that are already in the log, because the ranking of the store also has scores that
+     * have not been written yet, and those must not end up twice in the log.
+     */
+    private class Writer implements Runnable {
+
+        /** The best scores that are in the log, from best to worst. */
+        private final Score[] durable = new Score[top.length];
+        private int durableSize;
+
+        /** How many records there are in the log, to know when to compact it. */
+        private int records;
+
+        /** Scores taken from the queue that are written together. */
+        private final ArrayList<Score> batch = new ArrayList<Score>();
+
+        /** Where the bytes are prepared before writing them at once. */
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(HEADER_SIZE + 64 * RECORD_SIZE);
+
+        private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+
+        private final CRC32 crc = new CRC32();
+
+        @Override
+        public void run() {
+            try {
+                load();
+                if (records > durable.length + COMPACT_SLACK) {
+                    compact();
+                }
+            } catch (IOException e) {
+                Gdx.app.error("ScoreStore", "Cannot read scores from " + file, e);
+            }
+
+            // Add the scores that were already in the log to the ranking of the store.
+            synchronized (ScoreStore.this) {
+                for (int i = 0; i < durableSize; i++) {
+                    topSize = insert(top, topSize, durable[i]);
+                }
+            }
+            loaded = true;
+
+            boolean running = true;
+            while (running) {
+                try {
+                    // Wait for a score, then take any other score that is already waiting.
+                    batch.add(pending.take());
+                    pending.drainTo(batch);
+                } catch (InterruptedException e) {
+                    running = false;
+                }
+                if (batch.remove(STOP)) {
+                    running = false;
+                }
+                if (batch.isEmpty()) {
+                    continue;
+                }
+
+                try {
+                    append();
+                    if (records > durable.length + COMPACT_SLACK) {
+                        compact();
+                    }
+                } catch (IOException e) {
+                    // Scores are nice but they are not important enough to stop the game.
+                    Gdx.app.error("ScoreStore", "Cannot write scores to " + file, e);
+                }
+                batch.clear();
+            }
+        }
+
+        /**
+         * Read every valid record of the log. Reading stops at the first record whose checksum
+         * is wrong, and the log is cut right before it: everything after that record is thrown
+         * away, even records that look right. Records are only appended, so a broken record
+         * should be the last one, being written when the app was killed (a torn tail). Cutting
+         * it makes new records be appended where they should.
+         */
+        private void load() throws IOException {
+            if (!file.exists() && compacted.exists()) {
+                // The app was killed right after removing the old log. The new one is complete.
+                if (!compacted.renameTo(file)) {
+                    throw new IOException("Cannot rename " + compacted + " to " + file);
+                }
+            } else if (compacted.exists()) {
+                // The app was killed while compacting. The old log still has every score.
+                compacted.delete();
+            }
+            if (!file.exists()) {
+                return;
+            }
+
+            long valid = 0;
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                byte[] header = new byte[HEADER_SIZE];
+                in.readFully(header);
+                boolean known = header[MAGIC.length] == VERSION;
+                for (int i = 0; i < MAGIC.length; i++) {
+                    known &= header[i] == MAGIC[i];
+                }
+                if (known) {
+                    valid = HEADER_SIZE;
+                }
+
+                // If the header is not known, nothing is valid and the log is started again.
+                while (known) {
+                    in.readFully(record.array());
+                    crc.reset();
+                    crc.update(record.array(), 0, RECORD_SIZE - 4);
+                    if (record.getInt(RECORD_SIZE - 4) != (int) crc.getValue()) {
+                        break;
+                    }
+                    Score score = new Score(record.getLong(0), record.getInt(8),
+                            record.getFloat(12), record.getLong(16));
+                    durableSize = insert(durable, durableSize, score);
+                    records++;
+                    valid += RECORD_SIZE;
+                }
+            } catch (EOFException e) {
+                // There are no more complete records.
+            } finally {
+                in.close();
+            }
+
+            if (valid < file.length()) {
+                Gdx.app.log("ScoreStore", "Discarding " + (file.length() - valid) + " broken bytes at the end of " + file);
+                truncate(valid);
+            }
+        }
+
+        /** Cut the log to some length. */
+        private void truncate(long length) throws IOException {
+            RandomAccessFile log = new RandomAccessFile(file, "rw");
+            try {
+                log.setLength(length);
+            } finally {
+                log.close();
+            }
+        }
+
+        /** Append every score of the batch to the log and wait until it is on disk. */
+        private void append() throws IOException {
+            buffer.reset();
+            if (file.length() == 0) {
+                writeHeader();
+            }
+            for (Score score : batch) {
+                writeRecord(score);
+            }
+
+            long length = file.length();
+            FileOutputStream out = new FileOutputStream(file, true);
+            try {
+                buffer.writeTo(out);
+                out.getFD().sync();
+            } catch (IOException e) {
+                // Part of the batch could be in the log. Cut it, or the next records would be
+                // appended after a broken one and load() would throw them away.
+                out.close();
+                truncate(length);
+                throw e;
+            } finally {
+                out.close();
+            }
+
+            // Only now the scores are durable. If writing failed, they are not counted, so a
+            // compaction never writes scores that the log does not have.
+            for (Score score : batch) {
+                durableSize = insert(durable, durableSize, score);
+                records++;
+            }
+        }
+
+        /**
+         * Write only the best scores to a new file and replace the log with it. The log is
+         * only replaced once the new file is completely on disk.
+         */
+        private void compact() throws IOException {
+            buffer.reset();
+            writeHeader();
+            for (int i = 0; i < durableSize; i++) {
+                writeRecord(durable[i]);
+            }
+
+            FileOutputStream out = new FileOutputStream(compacted);
+            try {
+                buffer.writeTo(out);
+                out.getFD().sync();
+            } finally {
+                out.close();
+            }
+
+            // Renaming replaces the log on Android and Linux, but not on Windows. There, the
+            // log has to be removed first. If the app dies in between, load() uses the new one.
+            if (!compacted.renameTo(file) && !(file.delete() && compacted.renameTo(file))) {
+                throw new IOException("Cannot replace " + file + " with " + compacted);
+            }
+            records = durableSize;
+        }
+
+        private void writeHeader() throws IOException {
+            buffer.write(MAGIC);
+            buffer.write(VERSION);
+        }
+
+        private void writeRecord(Score score) {
+            record.clear();
+            record.putLong(score.getSeed());
+            record.putInt(score.getTicks());
+            record.putFloat(score.getDistance());
+            record.putLong(score.getTime());
+            crc.reset();
+            crc.update(record.array(), 0, RECORD_SIZE - 4);
+            record.putInt((int) crc.getValue());
+            buffer.write(record.array(), 0, RECORD_SIZE);
+        }
+    }
+}
@@ -0,0 +1,380 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package es.danirod.jddprototype.game.simulation;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import es.danirod.jddprototype.game.Constants;
+import es.danirod.jddprototype.game.entities.EntityFactory;
+import es.danirod.jddprototype.game.entities.PlayerEntity;
+import es.danirod.jddprototype.game.level.LevelChunk;
+import es.danirod.jddprototype.game.level.LevelGenerator;
+import es.danirod.jddprototype.game.level.LevelSource;
+
+/**
+ * Many independent games that are stepped together with a single call. This is the API for
+ * training and evaluating bots: write a jump action for every game in the actions buffer, call
+ * step(), and read the observations, rewards and done flags of every game from the other
+ * buffers. The buffers are direct and allocated once, so they can be shared with native code
+ * (for instance, a machine learning library) without copying, and step() allocates nothing.
+ *
+ * The games are split in shards, and every shard is stepped by its own thread. The thread that
+ * calls step() steps the first shard itself.
+ *
+ * When a game is done (the player died, reached the end of the level or ran out of time) it is
+ * started again automatically. The observation written for that step is the first observation
+ * of the new game, and the done flag tells that the previous game ended.
+ */
+public class BatchEnvironment implements Disposable {
+
+    /** Floats in the observation of every game. */
+    public static final int OBSERVATION_SIZE = 7;
+
+    /** Obstacles farther than this are not seen (meters). */
+    public static final float VIEW_DISTANCE = Constants.CHUNK_SIZE;
+
+    /** Reward given when the player dies. Moving forward gives 1 per meter. */
+    public static final float DEATH_REWARD = -10;
+
+    /** The games. */
+    private final Game[] games;
+
+    /** One action per game. A value greater than 0.5 means jump. */
+    private final FloatBuffer actions;
+
+    /** OBSERVATION_SIZE values per game, see observe(). */
+    private final FloatBuffer observations;
+
+    /** One reward per game for the last step. */
+    private final FloatBuffer rewards;
+
+    /** One flag per game: 1 if the game ended in the last step, 0 otherwise. */
+    private final FloatBuffer dones;
+
+    /** Worker threads, one per shard except the first one. */
+    private final Thread[] workers;
+
+    /** First game of every shard. Shard i has the games from shardStart[i] to shardStart[i + 1]. */
+    private final int[] shardStart;
+
+    /** Incremented to tell the workers that there is a new step to do. */
+    private volatile int generation;
+
+    /** Workers that haven't finished the current step yet. */
+    private final AtomicInteger remaining = new AtomicInteger();
+
+    /** The thread waiting in step() for the workers. */
+    private volatile Thread caller;
+
+    private volatile boolean running = true;
+
+    /** What a worker threw during the current step, if anything. step() throws it again. */
+    private volatile Throwable failure;
+
+    /** Has reset() been called? The games don't exist before. */
+    private boolean ready;
+
+    /** Maximum length of a game in ticks. */
+    private final int maxTicks;
+
+    /** Steps done since the environment was created. */
+    private long steps;
+
+    /**
+     * Create a new environment.
+     *
+     * @param instances  how many games are played at the same time.
+     * @param threads    how many threads step the games, including the caller of step().
+     * @param firstSeed  seed of the level of the first game. Game i plays firstSeed + i.
+     * @param chunks     length of the levels in chunks.
+     * @param maxTicks   a game ends after this amount of ticks even if the player is alive.
+     */
+    public BatchEnvironment(int instances, int threads, long firstSeed, int chunks, int maxTicks) {
+        this.maxTicks = maxTicks;
+        games = new Game[instances];
+        for (int i = 0; i < instances; i++) {
+            long seed = firstSeed + i;
+            games[i] = new Game(LevelGenerator.generateStatic(seed, chunks), chunks * Constants.CHUNK_SIZE);
+        }
+
+        actions = createBuffer(instances);
+        observations = createBuffer(instances * OBSERVATION_SIZE);
+        rewards = createBuffer(instances);
+        dones = createBuffer(instances);
+
+        int shards = Math.max(1, Math.min(threads, instances));
+        shardStart = new int[shards + 1];
+        for (int i = 0; i <= shards; i++) {
+            shardStart[i] = instances * i / shards;
+        }
+        workers = new Thread[shards - 1];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(new Worker(i + 1), "BatchEnvironment-" + (i + 1));
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    private static FloatBuffer createBuffer(int floats) {
+        return ByteBuffer.allocateDirect(floats * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+    /**
+     * Start every game again and write the first observations.
+     */
+    public void reset() {
+        for (int i = 0; i < games.length; i++) {
+            games[i].restart();
+            observe(i);
+            rewards.put(i, 0);
+            dones.put(i, 0);
+        }
+        ready = true;
+    }
+
+    /**
+     * Step every game a single tick using the actions buffer, and write the results.
+     *
+     * @throws GdxRuntimeException  if reset() hasn't been called yet, or if some game failed.
+     *                              Games in the same shard as the one that failed may not
+     *                              have been stepped, so call reset() after this.
+     */
+    public void step() {
+        if (!ready) {
+            throw new GdxRuntimeException("Environment stepped without calling reset() first");
+        }
+        caller = Thread.currentThread();
+        remaining.set(workers.length);
+        generation++;
+        for (Thread worker : workers) {
+            LockSupport.unpark(worker);
+        }
+
+        // The caller doesn't wait doing nothing, it steps the first shard. If that fails, it
+        // still waits for the workers, so that they are not stepping when the next step begins.
+        try {
+            stepShard(0);
+        } finally {
+            while (remaining.get() > 0) {
+                LockSupport.park(this);
+            }
+        }
+        steps++;
+
+        Throwable failure = this.failure;
+        if (failure != null) {
+            this.failure = null;
+            throw new GdxRuntimeException("A game of the batch failed in step " + steps, failure);
+        }
+    }
+
+    private void stepShard(int shard) {
+        for (int i = shardStart[shard]; i < shardStart[shard + 1]; i++) {
+            stepGame(i);
+        }
+    }
+
+    private void stepGame(int i) {
+        Game game = games[i];
+        if (actions.get(i) > 0.5f) {
+            game.simulation.pressJump();
+        }
+        game.simulation.tick();
+
+        PlayerEntity player = game.simulation.getPlayer();
+        float x = player.getBody().getPosition().x;
+        float reward = x - game.lastX;
+        game.lastX = x;
+
+        boolean done = false;
+        if (!player.isAlive()) {
+            reward += DEATH_REWARD;
+            done = true;
+        } else if (x >= game.length || game.simulation.getTicks() >= maxTicks) {
+            done = true;
+        }
+
+        if (done) {
+            game.restart();
+        }
+        rewards.put(i, reward);
+        dones.put(i, done ? 1 : 0);
+        observe(i);
+    }
+
+    /**
+     * Write the observation of some game:
+     * 0: height of the player (meters).
+     * 1: vertical speed of the player (meters per second).
+     * 2: 1 if the player is on the floor and can jump, 0 otherwise.
+     * 3: distance to the next spike (meters), VIEW_DISTANCE if there is none in sight.
+     * 4: height of the next spike (meters).
+     * 5: distance to the next raised floor (meters), VIEW_DISTANCE if there is none in sight.
+     * 6: height of the next raised floor (meters).
+     */
+    private void observe(int i) {
+        Game game = games[i];
+        PlayerEntity player = game.simulation.getPlayer();
+        Vector2 position = player.getBody().getPosition();
+        float x = position.x;
+
+        // Look for the nearest obstacles in front of the player, in this chunk and the next one.
+        float spikeDistance = VIEW_DISTANCE, spikeHeight = 0;
+        float floorDistance = VIEW_DISTANCE, floorHeight = 0;
+        int firstChunk = (int) Math.floor(x / Constants.CHUNK_SIZE);
+        for (int c = firstChunk; c <= firstChunk + 1; c++) {
+            LevelChunk chunk = game.level.getChunk(c);
+            if (chunk == null) {
+                continue;
+            }
+            for (int s = 0; s < chunk.getSpikeCount(); s++) {
+                float distance = chunk.getSpikeX(s) - x;
+                if (distance > -0.5f && distance < spikeDistance) {
+                    spikeDistance = distance;
+                    spikeHeight = chunk.getSpikeY(s);
+                }
+            }
+            for (int f = 0; f < chunk.getFloorCount(); f++) {
+                float distance = chunk.getFloorX(f) - x;
+                if (chunk.getFloorY(f) > 1 && distance > -0.5f && distance < floorDistance) {
+                    floorDistance = distance;
+                    floorHeight = chunk.getFloorY(f);
+                }
+            }
+        }
+
+        int base = i * OBSERVATION_SIZE;
+        observations.put(base, position.y);
+        observations.put(base + 1, player.getBody().getLinearVelocity().y);
+        observations.put(base + 2, player.isJumping() ? 0 : 1);
+        observations.put(base + 3, spikeDistance);
+        observations.put(base + 4, spikeHeight);
+        observations.put(base + 5, floorDistance);
+        observations.put(base + 6, floorHeight);
+    }
+
+    @Override
+    public void dispose() {
+        running = false;
+        for (Thread worker : workers) {
+            LockSupport.unpark(worker);
+            try {
+                worker.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Game game : games) {
+            if (game.started) {
+                game.simulation.stop();
+            }
+            game.simulation.dispose();
+        }
+    }
+
+    // Getter festival below here.
+
+    public int getInstances() {
+        return games.length;
+    }
+
+    public FloatBuffer getActions() {
+        return actions;
+    }
+
+    public FloatBuffer getObservations() {
+        return observations;
+    }
+
+    public FloatBuffer getRewards() {
+        return rewards;
+    }
+
+    public FloatBuffer getDones() {
+        return dones;
+    }
+
+    public long getSteps() {
+        return steps;
+    }
+
+    /** A single game of the batch. */
+    private static class Game {
+        final GameSimulation simulation;
+        final LevelSource level;
+        final float length;
+        float lastX;
+        boolean started;
+
+        Game(LevelSource level, float length) {
+            this.level = level;
+            this.length = length;
+            this.simulation = new GameSimulation(new EntityFactory(), level);
+        }
+
+        void restart() {
+            if (started) {
+                simulation.stop();
+            }
+            simulation.start();
+            started = true;
+            lastX = simulation.getPlayer().getBody().getPosition().x;
+        }
+    }
+
+    /** Steps a shard every time step() is called. */
+    private class Worker implements Runnable {
+        private final int shard;
+
+        Worker(int shard) {
+            this.shard = shard;
+        }
+
+        @Override
+        public void run() {
+            int done = 0;
+            while (true) {
+                while (generation == done && running) {
+                    LockSupport.park(this);
+                }
+                if (!running) {
+                    return;
+                }
+                done = generation;
+                try {
+                    stepShard(shard);
+                } catch (Throwable t) {
+                    // Dying here would leave step() waiting for this worker forever.
+                    failure = t;
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    LockSupport.unpark(caller);
+                }
+            }
+        }
+    }
+}
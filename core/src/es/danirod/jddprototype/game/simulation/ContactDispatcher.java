@@ -0,0 +1,262 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package es.danirod.jddprototype.game.simulation;
+
+import com.badlogic.gdx.physics.box2d.Contact;
+import com.badlogic.gdx.physics.box2d.ContactImpulse;
+import com.badlogic.gdx.physics.box2d.ContactListener;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.Manifold;
+
+import es.danirod.jddprototype.box2d.PhysicsStats;
+import es.danirod.jddprototype.game.entities.CollisionCategory;
+
+/**
+ * A contact listener that sends every contact to the handlers registered for the pair of
+ * categories that collided. Instead of comparing user data for every possible pair, the
+ * handlers are found in a table using the categories of both fixtures, so it costs the same
+ * no matter how many pairs there are.
+ *
+ * Handlers are not called while the world is being stepped. Contacts are only written to a
+ * queue during the step, and dispatch() has to be called after the step to send them to the
+ * handlers. This keeps the step as short as possible and lets the handlers do whatever they
+ * want, such as applying forces or playing sounds. The queue is allocated beforehand, so
+ * nothing is allocated while playing unless there are more contacts than ever before.
+ */
+public class ContactDispatcher implements ContactListener {
+
+    /**
+     * Something that handles contacts between two categories. The fixtures are always given in
+     * the order used when the handler was registered, so you don't have to check which is A
+     * and which is B.
+     */
+    public interface Handler {
+
+        /** Two fixtures just collided. */
+        void beginContact(Fixture first, Fixture second);
+
+        /** Two fixtures are no more colliding. */
+        void endContact(Fixture first, Fixture second);
+    }
+
+    /** The kinds of events in the queue. */
+    private static final byte BEGIN = 0, END = 1;
+
+    /** The handlers, indexed by the ordinal of the categories of fixture A and fixture B. */
+    private Subscription[][][] subscriptions =
+            new Subscription[CollisionCategory.COUNT][CollisionCategory.COUNT][0];
+
+    /** Queued events: kind and fixtures. This is a ring buffer, its size is a power of two. */
+    private byte[] kinds;
+    private Fixture[] fixturesA, fixturesB;
+
+    /** Position of the first event in the queue and amount of events in the queue. */
+    private int head, size;
+
+    /** Events dispatched since the counters were reset. */
+    private int begun, ended;
+
+    /** If not null, every contact of the world is counted here, even if nobody handles it. */
+    private PhysicsStats stats;
+
+    /**
+     * Create a new dispatcher.
+     * @param capacity  how many events the queue can hold before it has to grow. It is rounded
+     *                  up to a power of two.
+     */
+    public ContactDispatcher(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        kinds = new byte[size];
+        fixturesA = new Fixture[size];
+        fixturesB = new Fixture[size];
+    }
+
+    public ContactDispatcher() {
+        this(64);
+    }
+
+    /**
+     * Register some handler for contacts between two categories. Many handlers can be
+     * registered for the same pair. They are called in the order they were registered.
+     *
+     * @param first    the category of the first fixture given to the handler.
+     * @param second   the category of the second fixture given to the handler.
+     * @param handler  the handler.
+     */
+    public void register(CollisionCategory first, CollisionCategory second, Handler handler) {
+        Subscription subscription = new Subscription(first, handler);
+        add(first.ordinal(), second.ordinal(), subscription);
+        if (first != second) {
+            add(second.ordinal(), first.ordinal(), subscription);
+        }
+    }
+
+    private void add(int a, int b, Subscription subscription) {
+        Subscription[] old = subscriptions[a][b];
+        Subscription[] updated = new Subscription[old.length + 1];
+        System.arraycopy(old, 0, updated, 0, old.length);
+        updated[old.length] = subscription;
+        subscriptions[a][b] = updated;
+    }
+
+    @Override
+    public void beginContact(Contact contact) {
+        if (stats != null) {
+            stats.beginContact();
+        }
+        enqueue(BEGIN, contact);
+    }
+
+    @Override
+    public void endContact(Contact contact) {
+        if (stats != null) {
+            stats.endContact();
+        }
+        enqueue(END, contact);
+    }
+
+    /**
+     * Write some contact to the queue if anybody is interested in it.
+     */
+    private void enqueue(byte kind, Contact contact) {
+        Fixture fixtureA = contact.getFixtureA(), fixtureB = contact.getFixtureB();
+        CollisionCategory a = CollisionCategory.of(fixtureA), b = CollisionCategory.of(fixtureB);
+
+        // Fixtures without a category are not handled by anyone.
+        if (a == null || b == null || subscriptions[a.ordinal()][b.ordinal()].length == 0) {
+            return;
+        }
+
+        if (size == kinds.length) {
+            grow();
+        }
+        int index = (head + size) & (kinds.length - 1);
+        kinds[index] = kind;
+        fixturesA[index] = fixtureA;
+        fixturesB[index] = fixtureB;
+        size++;
+    }
+
+    /**
+     * Send every queued contact to its handlers. Call this after stepping the world.
+     */
+    public void dispatch() {
+        while (size > 0) {
+            byte kind = kinds[head];
+            Fixture fixtureA = fixturesA[head], fixtureB = fixturesB[head];
+            fixturesA[head] = fixturesB[head] = null;
+            head = (head + 1) & (kinds.length - 1);
+            size--;
+
+            CollisionCategory a = CollisionCategory.of(fixtureA), b = CollisionCategory.of(fixtureB);
+            Subscription[] list = subscriptions[a.ordinal()][b.ordinal()];
+            for (int i = 0; i < list.length; i++) {
+                // Give the fixtures in the order the handler expects them.
+                Fixture first = list[i].first == a ? fixtureA : fixtureB;
+                Fixture second = first == fixtureA ? fixtureB : fixtureA;
+                if (kind == BEGIN) {
+                    list[i].handler.beginContact(first, second);
+                } else {
+                    list[i].handler.endContact(first, second);
+                }
+            }
+
+            if (kind == BEGIN) {
+                begun++;
+            } else {
+                ended++;
+            }
+        }
+    }
+
+    /**
+     * Forget every queued contact without dispatching it, for instance when restarting.
+     */
+    public void clear() {
+        while (size > 0) {
+            fixturesA[head] = fixturesB[head] = null;
+            head = (head + 1) & (kinds.length - 1);
+            size--;
+        }
+    }
+
+    /**
+     * Make the queue twice as big. This only happens if there are more contacts in a single
+     * step than ever before.
+     */
+    private void grow() {
+        int capacity = kinds.length;
+        byte[] newKinds = new byte[capacity * 2];
+        Fixture[] newA = new Fixture[capacity * 2], newB = new Fixture[capacity * 2];
+        for (int i = 0; i < size; i++) {
+            int index = (head + i) & (capacity - 1);
+            newKinds[i] = kinds[index];
+            newA[i] = fixturesA[index];
+            newB[i] = fixturesB[index];
+        }
+        kinds = newKinds;
+        fixturesA = newA;
+        fixturesB = newB;
+        head = 0;
+    }
+
+    /** Reset the counters of dispatched events, for instance at the beginning of a frame. */
+    public void resetCounters() {
+        begun = ended = 0;
+    }
+
+    // Getter festival below here.
+
+    public void setStats(PhysicsStats stats) {
+        this.stats = stats;
+    }
+
+    /** @return how many begin events have been dispatched since the counters were reset. */
+    public int getBegun() {
+        return begun;
+    }
+
+    /** @return how many end events have been dispatched since the counters were reset. */
+    public int getEnded() {
+        return ended;
+    }
+
+    /** @return how many events can be queued before the queue has to grow. */
+    public int getCapacity() {
+        return kinds.length;
+    }
+
+    // Here two lonely methods that I don't use but have to override anyway.
+    @Override public void preSolve(Contact contact, Manifold oldManifold) { }
+    @Override public void postSolve(Contact contact, ContactImpulse impulse) { }
+
+    /**
+     * Some handler together with the category it expects to receive first.
+     */
+    private static class Subscription {
+        final CollisionCategory first;
+        final Handler handler;
+
+        Subscription(CollisionCategory first, Handler handler) {
+            this.first = first;
+            this.handler = handler;
+        }
+    }
+}
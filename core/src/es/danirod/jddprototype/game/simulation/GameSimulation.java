@@ -0,0 +1,519 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package es.danirod.jddprototype.game.simulation;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.TimeUtils;
+
+import es.danirod.jddprototype.box2d.Box2DTracker;
+import es.danirod.jddprototype.box2d.PhysicsStats;
+import es.danirod.jddprototype.game.Constants;
+import es.danirod.jddprototype.game.entities.CollisionCategory;
+import es.danirod.jddprototype.game.entities.EntityFactory;
+import es.danirod.jddprototype.game.entities.EntityPool;
+import es.danirod.jddprototype.game.entities.PlayerEntity;
+import es.danirod.jddprototype.game.level.LevelSource;
+import es.danirod.jddprototype.game.level.LevelStreamer;
+import es.danirod.jddprototype.game.level.StaticLevel;
+
+/**
+ * This is the gameplay of the game without any graphics, sounds or input. It has the Box2D
+ * world, the level and the rules for what happens when the player touches the floor or some
+ * spikes. Because it doesn't use OpenGL or Gdx.input, it can run inside GameScreen, inside a
+ * headless backend or without any backend at all, as fast as the CPU allows.
+ */
+public class GameSimulation implements Disposable {
+
+    /** Where the player is placed when a game starts. */
+    private static final Vector2 START_POSITION = new Vector2(1.5f, 1.5f);
+
+    /** How long a physics tick lasts, in nanoseconds. */
+    private static final long STEP_NANOS = (long) (Constants.STEP_TIME * 1e9);
+
+    /** The pool used to get the entities, so that they are reused between games. */
+    private EntityPool pool;
+
+    /** World instance for Box2D engine. */
+    private World world;
+
+    /** Counts the bodies of the world, to find leaks. */
+    private Box2DTracker tracker;
+
+    /** Player entity. */
+    private PlayerEntity player;
+
+    /** The level that is played. */
+    private LevelSource level;
+
+    /** Spawns the floors and spikes of the level near the player. */
+    private LevelStreamer streamer;
+
+    /** Queues the contacts during a step and sends them to the handlers after the step. */
+    private ContactDispatcher dispatcher;
+
+    /** Counters about the world, updated on every tick. */
+    private PhysicsStats stats;
+
+    /** Who should be told when something interesting happens. Can be null. */
+    private SimulationListener listener;
+
+    /**
+     * Amount of time that has been rendered but not simulated yet. Every frame adds its delta
+     * here and every physics tick consumes STEP_TIME from here.
+     */
+    private float accumulator;
+
+    /** How many ticks have been simulated since the simulation was started. */
+    private int ticks;
+
+    /** Is the user still touching the screen? Used to jump again when touching the floor. */
+    private boolean touching;
+
+    /**
+     * How many floors the player is touching. Floors are cut at the border of every chunk, so
+     * while running from a floor to the next one the player touches both for a moment. The
+     * player is only in the air when this goes back to 0.
+     */
+    private int floorContacts;
+
+    /** If not null, every input given to this simulation is added to this script. */
+    private InputScript recording;
+
+    /** If not null, the input is read from this script on every tick. */
+    private InputScript playback;
+
+    /** The next event of the playback script. */
+    private int playbackCursor;
+
+    /** If not null, the touches of the user are read from this queue on every tick. */
+    private TouchQueue touches;
+
+    /** When the jump pressed for the next tick was touched, if pressJump(long) was used. */
+    private long pressTime;
+    private boolean pressTimed;
+
+    /**
+     * Create a new simulation.
+     * @param factory  the factory used to create the entities. Use a factory without an asset
+     *                 manager if you are not going to render anything.
+     */
+    public GameSimulation(EntityFactory factory) {
+        this(factory, StaticLevel.createDefault());
+    }
+
+    /**
+     * Create a new simulation that plays some level.
+     * @param factory  the factory used to create the entities.
+     * @param level    the level to play.
+     */
+    public GameSimulation(EntityFactory factory, LevelSource level) {
+        this.level = level;
+
+        // Create a new Box2D world for managing things.
+        world = new World(new Vector2(0, -Constants.GRAVITY), true);
+        // Contacts are sent to a handler depending on what has collided. Floors and spikes
+        // don't collide between them, so only contacts with the player need a handler.
+        dispatcher = new ContactDispatcher();
+        dispatcher.register(CollisionCategory.PLAYER, CollisionCategory.FLOOR, new PlayerFloorHandler());
+        dispatcher.register(CollisionCategory.PLAYER, CollisionCategory.SPIKE, new PlayerSpikeHandler());
+        world.setContactListener(dispatcher);
+        tracker = new Box2DTracker(world);
+        stats = new PhysicsStats();
+        dispatcher.setStats(stats);
+
+        pool = new EntityPool(factory, tracker);
+        streamer = new LevelStreamer(pool, Constants.STREAM_AHEAD, Constants.STREAM_BEHIND);
+    }
+
+    /**
+     * Build the level and put the player at the beginning. Call stop() before calling this
+     * method again.
+     */
+    public void start() {
+        // Create the player. It has an initial position.
+        player = pool.obtainPlayer(START_POSITION);
+
+        // Spawn the beginning of the level. The rest of the level is spawned while moving.
+        begin(0);
+    }
+
+    /**
+     * Continue some game that was saved using save(). Call stop() before calling this method
+     * again. The level has to be the same level that was being played.
+     *
+     * @param snapshot  the state of the saved game.
+     */
+    public void start(Snapshot snapshot) {
+        // Put the player where it was, moving as it was moving.
+        player = pool.obtainPlayer(snapshot.getPosition());
+        Body body = player.getBody();
+        body.setTransform(snapshot.getPosition(), snapshot.getAngle());
+        body.setLinearVelocity(snapshot.getVelocity());
+        body.setAngularVelocity(snapshot.getAngularVelocity());
+        player.setAlive(snapshot.isAlive());
+        player.setJumping(snapshot.isJumping());
+
+        // Spawn the level from the chunks that had entities, not from the beginning.
+        begin(snapshot.getChunk());
+        ticks = snapshot.getTicks();
+    }
+
+    /**
+     * Save the state of this game so that it can be continued later with start(Snapshot). Only
+     * the player and the chunk where the level is are saved, the rest comes from the level.
+     *
+     * @param snapshot  where to save the state. The seed is not saved, the level doesn't know it.
+     */
+    public void save(Snapshot snapshot) {
+        Body body = player.getBody();
+        snapshot.set(ticks, streamer.getFirstChunk(), body.getPosition(), body.getAngle(),
+                body.getLinearVelocity(), body.getAngularVelocity(), player.isAlive(),
+                player.isJumping());
+    }
+
+    /**
+     * Spawn the level near the player and forget about the previous game.
+     */
+    private void begin(int firstChunk) {
+        streamer.start(level, firstChunk);
+        streamer.update(player.getBody().getPosition().x);
+
+        // Forget about any time, input or contact left from the previous game.
+        dispatcher.clear();
+        stats.reset();
+        accumulator = 0;
+        ticks = 0;
+        touching = false;
+        floorContacts = 0;
+        playbackCursor = 0;
+        pressTimed = false;
+        if (touches != null) {
+            touches.clear();
+        }
+    }
+
+    /**
+     * Remove every entity from the simulation, so that it can be started again. The entities
+     * are kept in the pool, so starting again doesn't have to create them.
+     */
+    public void stop() {
+        // Give every entity back to the pool.
+        pool.free(player);
+        streamer.clear();
+    }
+
+    /**
+     * Advance the simulation using the amount of time a frame took. The world is always stepped
+     * using the same amount of time, so depending on how long this frame took, there might be
+     * zero, one or several ticks. The amount of ticks is limited so that a very slow frame
+     * doesn't make the following frames even slower.
+     *
+     * If there is a touch queue, every touch is applied on the tick that was running when it
+     * happened. The accumulator tells how far behind real time the simulation is, so the first
+     * tick of this frame began that long ago, and every tick after it began STEP_TIME later.
+     *
+     * The touches are stamped when the events are handled at the beginning of the frame, and
+     * the last tick of the frame usually ends a bit before that, because the simulation is
+     * always some time behind. Waiting for a tick that ends after the touch would make every
+     * jump a frame late, so the touches that are already in the queue are applied on the last
+     * tick of this frame at the latest.
+     *
+     * @param delta  seconds since the last frame.
+     * @return       the amount of ticks that have been simulated.
+     */
+    public int update(float delta) {
+        dispatcher.resetCounters();
+        accumulator += delta;
+        long now = touches != null ? TimeUtils.nanoTime() : 0;
+        long tickEnd = now - (long) (accumulator * 1e9);
+        int steps = 0;
+        while (accumulator >= Constants.STEP_TIME && steps < Constants.MAX_STEPS_PER_FRAME) {
+            if (touches != null) {
+                // Touches that happened after this tick stay in the queue for a later tick,
+                // unless this is the last tick of the frame.
+                tickEnd += STEP_NANOS;
+                boolean last = accumulator - Constants.STEP_TIME < Constants.STEP_TIME
+                        || steps + 1 == Constants.MAX_STEPS_PER_FRAME;
+                touches.apply(this, last ? Math.max(tickEnd, now + 1) : tickEnd);
+            }
+            tick();
+            accumulator -= Constants.STEP_TIME;
+            steps++;
+        }
+        if (accumulator >= Constants.STEP_TIME) {
+            // We gave up catching up. Drop the time we couldn't simulate.
+            accumulator %= Constants.STEP_TIME;
+        }
+        return steps;
+    }
+
+    /**
+     * Simulate a single physics tick. Use this method directly if you want to run the game
+     * faster than real time.
+     */
+    public void tick() {
+        if (playback != null) {
+            playbackCursor = playback.apply(this, playbackCursor);
+        }
+        streamer.update(player.getBody().getPosition().x);
+        boolean grounded = !player.isJumping();
+        player.tick();
+        if (pressTimed) {
+            // The touch is only a jump if the player was on the floor. Otherwise it is lost.
+            if (grounded && player.isJumping() && touches != null) {
+                touches.recordLatency(TimeUtils.nanoTime() - pressTime);
+            }
+            pressTimed = false;
+        }
+        stats.step(world, Constants.STEP_TIME, 6, 2);
+
+        // Now that the world is not locked, handle the contacts that happened during the step.
+        dispatcher.dispatch();
+        ticks++;
+    }
+
+    /**
+     * Run the simulation until the player dies or until the limit of ticks is reached, using
+     * the given script as the input.
+     *
+     * @param script    the input that the player would have given.
+     * @param maxTicks  the maximum amount of ticks to simulate.
+     * @return          the amount of ticks the player survived.
+     */
+    public int run(InputScript script, int maxTicks) {
+        play(script);
+        while (player.isAlive() && ticks < maxTicks) {
+            tick();
+        }
+        play(null);
+        return ticks;
+    }
+
+    /**
+     * Record every input given to this simulation from now on. Every event is added to the
+     * script using the tick where the simulation will use it, so playing the script again
+     * gives the same game. Do not record and play at the same time.
+     *
+     * @param script  where to record the input, or null to stop recording.
+     */
+    public void record(InputScript script) {
+        this.recording = script;
+    }
+
+    /**
+     * Read the input from some script on every tick, instead of using pressJump() and
+     * setTouching(). Call this after start(), or before start() to play from the beginning.
+     *
+     * @param script  the script to play, or null to stop playing.
+     */
+    public void play(InputScript script) {
+        this.playback = script;
+        this.playbackCursor = 0;
+    }
+
+    /**
+     * Read the touches of the user from some queue. The queue is read on every tick by update(),
+     * so only the touches that happened before each tick are applied to it.
+     *
+     * @param queue  the queue that receives the touches, or null to stop reading it.
+     */
+    public void listen(TouchQueue queue) {
+        this.touches = queue;
+    }
+
+    /**
+     * Tell the simulation that the user touched the screen at some moment. It is the same as
+     * pressJump(), but the time it takes to actually jump is measured by the touch queue.
+     *
+     * @param time  when the screen was touched, according to TimeUtils.nanoTime().
+     */
+    public void pressJump(long time) {
+        pressJump();
+        pressTime = time;
+        pressTimed = true;
+    }
+
+    /**
+     * Tell the simulation that the user has just touched the screen. The player will jump on
+     * the next tick if possible.
+     */
+    public void pressJump() {
+        if (recording != null) {
+            recording.add(ticks, InputScript.JUMP);
+        }
+        player.setMustJump(true);
+    }
+
+    /**
+     * Tell the simulation whether the user is touching the screen right now.
+     */
+    public void setTouching(boolean touching) {
+        if (recording != null && touching != this.touching) {
+            recording.add(ticks, touching ? InputScript.DOWN : InputScript.UP);
+        }
+        this.touching = touching;
+    }
+
+    /**
+     * @return how far we are between the last tick and the next one, in range [0,1).
+     */
+    public float getAlpha() {
+        return accumulator / Constants.STEP_TIME;
+    }
+
+    @Override
+    public void dispose() {
+        // Destroy the entities kept by the pool before destroying the world itself. After
+        // this, if there is any body left in the world, it has been leaked by someone.
+        pool.clear();
+        tracker.checkWorld("GameSimulation.dispose");
+
+        // Dispose the world to remove the Box2D native data (C++ backend, invoked by Java).
+        world.dispose();
+    }
+
+    // Getter and setter festival below here.
+
+    public void setListener(SimulationListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Change the level that is played. The new level is used the next time start() is called.
+     */
+    public void setLevel(LevelSource level) {
+        this.level = level;
+    }
+
+    public LevelSource getLevel() {
+        return level;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public Box2DTracker getTracker() {
+        return tracker;
+    }
+
+    public PlayerEntity getPlayer() {
+        return player;
+    }
+
+    public EntityPool getPool() {
+        return pool;
+    }
+
+    /**
+     * @return the dispatcher for the contacts of this world. Register handlers here to know
+     *         about contacts after every tick.
+     */
+    public ContactDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    public PhysicsStats getStats() {
+        return stats;
+    }
+
+    public LevelStreamer getStreamer() {
+        return streamer;
+    }
+
+    public int getTicks() {
+        return ticks;
+    }
+
+    /** @return how many meters the player has run since the game started. */
+    public float getDistance() {
+        return player.getBody().getPosition().x - START_POSITION.x;
+    }
+
+    /**
+     * Handles the contacts between the player and the floor.
+     */
+    private class PlayerFloorHandler implements ContactDispatcher.Handler {
+
+        /**
+         * This method is executed when a contact has started: when two fixtures just collided.
+         */
+        @Override
+        public void beginContact(Fixture playerFixture, Fixture floorFixture) {
+            // Running from a floor to the next one is not landing.
+            if (floorContacts++ > 0) {
+                return;
+            }
+            player.setJumping(false);
+
+            // If the screen is still touched, you have to jump again.
+            if (touching) {
+                if (listener != null)
+                    listener.onJump();
+
+                // Contacts are handled after the step, but the forces of this tick have
+                // already been applied. Here I update the flag value mustJump. This will make
+                // the player jump on next tick.
+                player.setMustJump(true);
+            }
+        }
+
+        /**
+         * This method is executed when a contact has finished: two fixtures are no more colliding.
+         */
+        @Override
+        public void endContact(Fixture playerFixture, Fixture floorFixture) {
+            // Leaving a floor while still touching the next one is not jumping.
+            if (floorContacts > 0 && --floorContacts > 0) {
+                return;
+            }
+
+            // The player is jumping and it is not touching the floor.
+            if (player.isAlive() && listener != null) {
+                listener.onJump();
+            }
+        }
+    }
+
+    /**
+     * Handles the contacts between the player and something that hurts.
+     */
+    private class PlayerSpikeHandler implements ContactDispatcher.Handler {
+
+        @Override
+        public void beginContact(Fixture playerFixture, Fixture spikeFixture) {
+            // Check that is alive. Sometimes you bounce, you don't want to die more than once.
+            if (player.isAlive()) {
+                player.setAlive(false);
+                if (listener != null)
+                    listener.onDeath();
+            }
+        }
+
+        @Override
+        public void endContact(Fixture playerFixture, Fixture spikeFixture) {
+            // Nothing happens, you are already dead.
+        }
+    }
+}
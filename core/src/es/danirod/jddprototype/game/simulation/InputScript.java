@@ -0,0 +1,134 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package es.danirod.jddprototype.game.simulation;
+
+import com.badlogic.gdx.utils.ByteArray;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * A list of input events that can be fed to a simulation instead of reading Gdx.input. Every
+ * event happens on some tick: the user presses the screen to jump, puts the finger on the
+ * screen or lifts it. Events have to be added in order. A script can also be filled while
+ * playing, to record what the user did and play it again later.
+ */
+public class InputScript {
+
+    /** The user touched the screen and wants to jump. */
+    public static final byte JUMP = 0;
+
+    /** The user is touching the screen from this tick. */
+    public static final byte DOWN = 1;
+
+    /** The user is not touching the screen from this tick. */
+    public static final byte UP = 2;
+
+    /** Ticks where every event happens. */
+    private IntArray ticks;
+
+    /** Kind of every event. */
+    private ByteArray kinds;
+
+    /**
+     * Create an empty script.
+     * @param capacity  how many events fit before the script has to grow. Use a big capacity
+     *                  when recording, so that the script doesn't allocate while playing.
+     */
+    public InputScript(int capacity) {
+        ticks = new IntArray(capacity);
+        kinds = new ByteArray(capacity);
+    }
+
+    public InputScript() {
+        this(16);
+    }
+
+    /**
+     * Add some event to this script.
+     * @param tick  the tick before which the event happens.
+     * @param kind  JUMP, DOWN or UP.
+     * @return      this script, so that calls can be chained.
+     */
+    public InputScript add(int tick, byte kind) {
+        if (ticks.size > 0 && tick < ticks.peek()) {
+            throw new IllegalArgumentException("Events have to be added in order");
+        }
+        ticks.add(tick);
+        kinds.add(kind);
+        return this;
+    }
+
+    /**
+     * Add a complete touch to this script: a jump, and touching the screen for a while.
+     * @param tick      the tick where the screen is touched.
+     * @param duration  how many ticks the screen is touched (at least 1).
+     * @return          this script, so that calls can be chained.
+     */
+    public InputScript touch(int tick, int duration) {
+        add(tick, JUMP);
+        add(tick, DOWN);
+        add(tick + Math.max(1, duration), UP);
+        return this;
+    }
+
+    /** Remove every event from this script so that it can be filled again. */
+    public void clear() {
+        ticks.clear();
+        kinds.clear();
+    }
+
+    /** @return how many events there are in this script. */
+    public int size() {
+        return ticks.size;
+    }
+
+    public int getTick(int index) {
+        return ticks.get(index);
+    }
+
+    public byte getKind(int index) {
+        return kinds.get(index);
+    }
+
+    /**
+     * Feed the simulation with the input for the tick that is about to be simulated.
+     *
+     * @param simulation  the simulation that will receive the input.
+     * @param cursor      the event the script is currently at. Start with 0.
+     * @return            the cursor to use on the next tick.
+     */
+    public int apply(GameSimulation simulation, int cursor) {
+        int tick = simulation.getTicks();
+        while (cursor < ticks.size && ticks.get(cursor) <= tick) {
+            switch (kinds.get(cursor)) {
+                case JUMP:
+                    simulation.pressJump();
+                    break;
+                case DOWN:
+                    simulation.setTouching(true);
+                    break;
+                case UP:
+                    simulation.setTouching(false);
+                    break;
+            }
+            cursor++;
+        }
+        return cursor;
+    }
+}
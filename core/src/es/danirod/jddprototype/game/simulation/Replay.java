@@ -0,0 +1,158 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package es.danirod.jddprototype.game.simulation;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A recorded game: the level seed, how long the game was and every input event. This is
+ * enough to play the same game again, because the simulation always does the same thing given
+ * the same input on the same tick.
+ *
+ * Replays are stored in a small binary format. After a header, every event is written as a
+ * single variable length integer holding the ticks since the previous event and the kind of
+ * the event, so most events take one or two bytes and a game of several minutes takes a few
+ * kilobytes at most.
+ *
+ * <pre>
+ * magic     4 bytes  "JDDR"
+ * version   1 byte   1
+ * seed      varint   zigzag encoded
+ * ticks     varint   length of the game
+ * count     varint   amount of events
+ * events    varint   (ticks since previous event &lt;&lt; 2) | kind
+ * </pre>
+ */
+public class Replay {
+
+    private static final byte[] MAGIC = { 'J', 'D', 'D', 'R' };
+
+    private static final int VERSION = 1;
+
+    /** The seed of the level that was played. 0 for the default level. */
+    private long seed;
+
+    /** How many ticks the game lasted. */
+    private int ticks;
+
+    /** The input events of the game. */
+    private InputScript script;
+
+    public Replay(long seed, int ticks, InputScript script) {
+        this.seed = seed;
+        this.ticks = ticks;
+        this.script = script;
+    }
+
+    /**
+     * Write this replay. The stream is not closed.
+     * @param out  where to write the replay.
+     */
+    public void write(OutputStream out) throws IOException {
+        out.write(MAGIC);
+        out.write(VERSION);
+        writeVarLong(out, (seed << 1) ^ (seed >> 63));
+        writeVarLong(out, ticks);
+        writeVarLong(out, script.size());
+
+        int previous = 0;
+        for (int i = 0; i < script.size(); i++) {
+            int tick = script.getTick(i);
+            writeVarLong(out, ((long) (tick - previous) << 2) | script.getKind(i));
+            previous = tick;
+        }
+    }
+
+    /**
+     * Read some replay. The stream is not closed.
+     * @param in  where to read the replay from.
+     * @return    the replay.
+     * @throws IOException  if the stream is not a valid replay.
+     */
+    public static Replay read(InputStream in) throws IOException {
+        for (byte expected : MAGIC) {
+            if (in.read() != expected) {
+                throw new IOException("Not a replay file");
+            }
+        }
+        int version = in.read();
+        if (version != VERSION) {
+            throw new IOException("Unsupported replay version " + version);
+        }
+
+        long zigzag = readVarLong(in);
+        long seed = (zigzag >>> 1) ^ -(zigzag & 1);
+        int ticks = (int) readVarLong(in);
+        int count = (int) readVarLong(in);
+
+        InputScript script = new InputScript();
+        int tick = 0;
+        for (int i = 0; i < count; i++) {
+            long value = readVarLong(in);
+            tick += (int) (value >>> 2);
+            script.add(tick, (byte) (value & 3));
+        }
+        return new Replay(seed, ticks, script);
+    }
+
+    /**
+     * Write a positive number using 7 bits per byte. The highest bit of every byte tells
+     * whether there are more bytes.
+     */
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Replay file is truncated");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed number in replay file");
+    }
+
+    // Getter festival below here.
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getTicks() {
+        return ticks;
+    }
+
+    public InputScript getScript() {
+        return script;
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package es.danirod.jddprototype.game.simulation;
+
+/**
+ * Receives the things that happen inside a simulation that the rest of the game may want to
+ * know about, such as playing a sound or changing to another screen. The simulation doesn't
+ * know anything about sounds or screens, so it just tells the listener.
+ */
+public interface SimulationListener {
+
+    /** The player has jumped or has left the floor. */
+    void onJump();
+
+    /** The player has touched something that hurts and it is no more alive. */
+    void onDeath();
+}
@@ -0,0 +1,203 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package es.danirod.jddprototype.game.simulation;
+
+import com.badlogic.gdx.math.Vector2;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Everything required to continue a game later: where the level was, where the player was and
+ * how it was moving. Android can kill the game while it is in the background, so a snapshot is
+ * saved when the game is paused and the game continues from it the next time it starts.
+ *
+ * The rest of the world doesn't have to be saved, because the floors and spikes are always the
+ * same for the same seed: the streamer only has to spawn them again from the right chunk.
+ *
+ * <pre>
+ * magic      4 bytes  "JDSN"
+ * version    1 byte   1
+ * seed       8 bytes
+ * ticks      4 bytes
+ * chunk      4 bytes  first chunk that was spawned
+ * position   8 bytes  two floats, meters
+ * angle      4 bytes  float, radians
+ * velocity   8 bytes  two floats, meters per second
+ * spin       4 bytes  float, radians per second
+ * flags      1 byte   1 if alive, 2 if jumping
+ * camera     4 bytes  float, horizontal position of the camera
+ * </pre>
+ */
+public class Snapshot {
+
+    private static final byte[] MAGIC = { 'J', 'D', 'S', 'N' };
+
+    private static final int VERSION = 1;
+
+    private static final int ALIVE = 1, JUMPING = 2;
+
+    /** The seed of the level that was played. 0 for the default level. */
+    private long seed;
+
+    /** How many ticks had been simulated. */
+    private int ticks;
+
+    /** The oldest chunk that had entities. The level is spawned again from here. */
+    private int chunk;
+
+    /** Where the player was and how it was moving. */
+    private final Vector2 position = new Vector2();
+    private float angle;
+    private final Vector2 velocity = new Vector2();
+    private float angularVelocity;
+
+    /** The flags of the player. */
+    private boolean alive, jumping;
+
+    /** The horizontal position of the camera. */
+    private float cameraX;
+
+    /**
+     * Write this snapshot. The stream is not closed.
+     * @param out  where to write the snapshot.
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.write(MAGIC);
+        data.write(VERSION);
+        data.writeLong(seed);
+        data.writeInt(ticks);
+        data.writeInt(chunk);
+        data.writeFloat(position.x);
+        data.writeFloat(position.y);
+        data.writeFloat(angle);
+        data.writeFloat(velocity.x);
+        data.writeFloat(velocity.y);
+        data.writeFloat(angularVelocity);
+        data.write((alive ? ALIVE : 0) | (jumping ? JUMPING : 0));
+        data.writeFloat(cameraX);
+        data.flush();
+    }
+
+    /**
+     * Read some snapshot. The stream is not closed.
+     * @param in  where to read the snapshot from.
+     * @return    the snapshot.
+     * @throws IOException  if the stream is not a valid snapshot.
+     */
+    public static Snapshot read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        for (byte expected : MAGIC) {
+            if (data.read() != expected) {
+                throw new IOException("Not a snapshot file");
+            }
+        }
+        int version = data.read();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+
+        Snapshot snapshot = new Snapshot();
+        snapshot.seed = data.readLong();
+        snapshot.ticks = data.readInt();
+        snapshot.chunk = data.readInt();
+        snapshot.position.set(data.readFloat(), data.readFloat());
+        snapshot.angle = data.readFloat();
+        snapshot.velocity.set(data.readFloat(), data.readFloat());
+        snapshot.angularVelocity = data.readFloat();
+        int flags = data.readUnsignedByte();
+        snapshot.alive = (flags & ALIVE) != 0;
+        snapshot.jumping = (flags & JUMPING) != 0;
+        snapshot.cameraX = data.readFloat();
+        if (snapshot.ticks < 0 || snapshot.chunk < 0) {
+            throw new IOException("Snapshot file is corrupt");
+        }
+        return snapshot;
+    }
+
+    /**
+     * Copy the state of the player and the level. Used by GameSimulation.save().
+     */
+    void set(int ticks, int chunk, Vector2 position, float angle, Vector2 velocity,
+             float angularVelocity, boolean alive, boolean jumping) {
+        this.ticks = ticks;
+        this.chunk = chunk;
+        this.position.set(position);
+        this.angle = angle;
+        this.velocity.set(velocity);
+        this.angularVelocity = angularVelocity;
+        this.alive = alive;
+        this.jumping = jumping;
+    }
+
+    // Getter and setter festival below here.
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int getTicks() {
+        return ticks;
+    }
+
+    public int getChunk() {
+        return chunk;
+    }
+
+    public Vector2 getPosition() {
+        return position;
+    }
+
+    public float getAngle() {
+        return angle;
+    }
+
+    public Vector2 getVelocity() {
+        return velocity;
+    }
+
+    public float getAngularVelocity() {
+        return angularVelocity;
+    }
+
+    public boolean isAlive() {
+        return alive;
+    }
+
+    public boolean isJumping() {
+        return jumping;
+    }
+
+    public float getCameraX() {
+        return cameraX;
+    }
+
+    public void setCameraX(float cameraX) {
+        this.cameraX = cameraX;
+    }
+}
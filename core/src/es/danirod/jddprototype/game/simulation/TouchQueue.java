@@ -0,0 +1,236 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package es.danirod.jddprototype.game.simulation;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.InputAdapter;
+import com.badlogic.gdx.utils.StringBuilder;
+import com.badlogic.gdx.utils.TimeUtils;
+
+import java.util.Arrays;
+
+/**
+ * Collects the touches of the user as they happen, instead of asking Gdx.input once per frame.
+ * Every touch remembers when it happened, in nanoseconds, so that the simulation can apply it
+ * on the tick that was running at that moment. Polling once per frame makes a tap arrive up to
+ * a whole frame late, and a very quick tap could even happen between two polls and be lost.
+ *
+ * The queue also measures how long it takes since the user touches the screen until the
+ * player actually jumps, so that you can see if the game feels responsive.
+ */
+public class TouchQueue extends InputAdapter {
+
+    /** How many latencies are kept. Less than 286 so that Arrays.sort does not allocate memory. */
+    public static final int WINDOW = 256;
+
+    /**
+     * When every queued event was received, according to TimeUtils.nanoTime(), the clock that
+     * GameSimulation.update uses for its ticks. Gdx.input.getCurrentEventTime() is not used
+     * because it comes from another clock on some backends, such as Mouse.getEventNanoseconds()
+     * on LWJGL2, and comparing both clocks would put touches on the wrong tick.
+     */
+    private long[] times;
+
+    /** Kind of every queued event, using the kinds in InputScript. */
+    private byte[] kinds;
+
+    /** The first queued event and how many events there are. It is a ring buffer. */
+    private int head, size;
+
+    /** How many fingers are on the screen right now. */
+    private int pointers;
+
+    /** Nanoseconds since every touch until its jump, for the last jumps. A ring buffer too. */
+    private final long[] latencies = new long[WINDOW];
+
+    /** Used to sort the latencies when computing percentiles. */
+    private final long[] sorted = new long[WINDOW];
+
+    /** Where the next latency goes and how many latencies there are, up to WINDOW. */
+    private int cursor, jumps;
+
+    /** The worst latency since the queue was reset. */
+    private long maxLatency;
+
+    /**
+     * Create an empty queue.
+     * @param capacity  how many events fit before the queue has to grow. A frame rarely has
+     *                  more than a couple of events, so a small number is enough.
+     */
+    public TouchQueue(int capacity) {
+        times = new long[capacity];
+        kinds = new byte[capacity];
+    }
+
+    public TouchQueue() {
+        this(16);
+    }
+
+    @Override
+    public boolean touchDown(int screenX, int screenY, int pointer, int button) {
+        // Events are handled at the beginning of the frame, so this is a bit later than the
+        // real touch. It is still better than polling, and it uses the clock of the ticks.
+        long time = TimeUtils.nanoTime();
+        add(time, InputScript.JUMP);
+        if (pointers++ == 0) {
+            add(time, InputScript.DOWN);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean touchUp(int screenX, int screenY, int pointer, int button) {
+        if (pointers > 0 && --pointers == 0) {
+            add(TimeUtils.nanoTime(), InputScript.UP);
+        }
+        return true;
+    }
+
+    /**
+     * Add some event at the end of the queue. Events are expected to come in order.
+     * @param time  when the event happened, according to TimeUtils.nanoTime().
+     * @param kind  JUMP, DOWN or UP.
+     */
+    public void add(long time, byte kind) {
+        if (size == times.length) {
+            grow();
+        }
+        int index = (head + size) % times.length;
+        times[index] = time;
+        kinds[index] = kind;
+        size++;
+    }
+
+    /**
+     * Feed the simulation with every event that happened before the tick that is about to be
+     * simulated ends. Events that happen later stay in the queue for a later tick.
+     *
+     * @param simulation  the simulation that will receive the input.
+     * @param tickEnd     when the tick that is about to be simulated ends in real time.
+     */
+    public void apply(GameSimulation simulation, long tickEnd) {
+        while (size > 0 && times[head] - tickEnd < 0) {
+            switch (kinds[head]) {
+                case InputScript.JUMP:
+                    simulation.pressJump(times[head]);
+                    break;
+                case InputScript.DOWN:
+                    simulation.setTouching(true);
+                    break;
+                case InputScript.UP:
+                    simulation.setTouching(false);
+                    break;
+            }
+            head = (head + 1) % times.length;
+            size--;
+        }
+    }
+
+    /**
+     * Forget about every queued event and every finger on the screen. The latencies are kept,
+     * use resetLatencies() to forget about them.
+     */
+    public void clear() {
+        head = size = 0;
+        pointers = 0;
+    }
+
+    /**
+     * Remember how long some touch took to become a jump.
+     * @param nanos  nanoseconds since the touch happened until the jump was applied.
+     */
+    public void recordLatency(long nanos) {
+        latencies[cursor] = nanos;
+        cursor = (cursor + 1) % WINDOW;
+        jumps = Math.min(jumps + 1, WINDOW);
+        maxLatency = Math.max(maxLatency, nanos);
+    }
+
+    /** Forget about every measured latency. */
+    public void resetLatencies() {
+        cursor = jumps = 0;
+        maxLatency = 0;
+    }
+
+    /**
+     * @param percentile  some percentile between 0 and 100.
+     * @return            the latency of that percentile for the last jumps, in nanoseconds.
+     */
+    public long getLatencyPercentile(int percentile) {
+        if (jumps == 0) {
+            return 0;
+        }
+        System.arraycopy(latencies, 0, sorted, 0, jumps);
+        Arrays.sort(sorted, 0, jumps);
+        int index = Math.min(jumps - 1, jumps * percentile / 100);
+        return sorted[index];
+    }
+
+    /**
+     * Append the latencies to some text. The text is not cleared first.
+     * @param out  where to append the text.
+     * @return     the same text, so that calls can be chained.
+     */
+    public StringBuilder appendTo(StringBuilder out) {
+        out.append("input to jump us p50/p95/p99/max: ").append(getLatencyPercentile(50) / 1000)
+                .append(" / ").append(getLatencyPercentile(95) / 1000)
+                .append(" / ").append(getLatencyPercentile(99) / 1000)
+                .append(" / ").append(maxLatency / 1000)
+                .append(" (").append(jumps).append(" jumps)");
+        return out;
+    }
+
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder()).toString();
+    }
+
+    /** Make room for more events, keeping them in the same order. */
+    private void grow() {
+        long[] newTimes = new long[times.length * 2];
+        byte[] newKinds = new byte[kinds.length * 2];
+        for (int i = 0; i < size; i++) {
+            int index = (head + i) % times.length;
+            newTimes[i] = times[index];
+            newKinds[i] = kinds[index];
+        }
+        times = newTimes;
+        kinds = newKinds;
+        head = 0;
+    }
+
+    // Getter festival below here.
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isTouching() {
+        return pointers > 0;
+    }
+
+    public long getMaxLatency() {
+        return maxLatency;
+    }
+
+    public int getJumps() {
+        return jumps;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package es.danirod.jddprototype.scene2d;
+
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.scenes.scene2d.Group;
+import com.badlogic.gdx.utils.SnapshotArray;
+
+/**
+ * A group that only acts and draws the children that the camera of the stage can see. The
+ * bounds of every child are checked against the frustum of the camera, making it a bit bigger
+ * using some margin so that actors don't pop in when they enter the screen. Children that are
+ * far from the camera cost nothing, so a level can be as long as you want.
+ *
+ * To keep this simple, this group is never transformed, it has to be placed at (0,0) and it
+ * doesn't run actions on itself (its children can still have actions).
+ */
+public class CullingGroup extends Group {
+
+    /** How many pixels outside of the camera an actor is still considered visible. */
+    private float margin;
+
+    /** How many children were in view and how many were skipped in the last act. */
+    private int visibleCount, culledCount;
+
+    public CullingGroup(float margin) {
+        this.margin = margin;
+        setTransform(false);
+    }
+
+    @Override
+    public void act(float delta) {
+        visibleCount = culledCount = 0;
+        if (getStage() == null) {
+            return;
+        }
+        Camera camera = getStage().getCamera();
+        SnapshotArray<Actor> children = getChildren();
+        Actor[] actors = children.begin();
+        for (int i = 0, n = children.size; i < n; i++) {
+            if (isInView(camera, actors[i])) {
+                actors[i].act(delta);
+                visibleCount++;
+            } else {
+                culledCount++;
+            }
+        }
+        children.end();
+    }
+
+    @Override
+    public void draw(Batch batch, float parentAlpha) {
+        Camera camera = getStage().getCamera();
+        parentAlpha *= getColor().a;
+        SnapshotArray<Actor> children = getChildren();
+        Actor[] actors = children.begin();
+        for (int i = 0, n = children.size; i < n; i++) {
+            Actor child = actors[i];
+            if (!child.isVisible()) {
+                continue;
+            }
+            if (isInView(camera, child)) {
+                child.draw(batch, parentAlpha);
+            }
+        }
+        children.end();
+    }
+
+    /**
+     * Check whether some actor is inside the frustum of the camera plus the margin.
+     */
+    private boolean isInView(Camera camera, Actor actor) {
+        float halfWidth = actor.getWidth() / 2, halfHeight = actor.getHeight() / 2;
+        return camera.frustum.boundsInFrustum(actor.getX() + halfWidth, actor.getY() + halfHeight, 0,
+                halfWidth + margin, halfHeight + margin, 1);
+    }
+
+    // Getter festival below here.
+
+    /** @return how many children were near the camera in the last frame. */
+    public int getVisibleCount() {
+        return visibleCount;
+    }
+
+    /** @return how many children were skipped in the last frame because they were far. */
+    public int getCulledCount() {
+        return culledCount;
+    }
+}
@@ -18,8 +18,8 @@
 
 package es.danirod.jddprototype.scene2d;
 
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.scenes.scene2d.Actor;
 
 /**
@@ -28,12 +28,12 @@ import com.badlogic.gdx.scenes.scene2d.Actor;
 public class PlayerActor extends Actor {
 
     /** The player texture. */
-    private Texture player;
+    private TextureRegion player;
 
     /** Is the player alive or not. */
     private boolean alive;
 
-    public PlayerActor(Texture player) {
+    public PlayerActor(TextureRegion player) {
         this.player = player;
         this.alive = true;
     }
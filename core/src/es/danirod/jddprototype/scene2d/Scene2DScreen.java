@@ -20,7 +20,7 @@ package es.danirod.jddprototype.scene2d;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.GL20;
-import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.utils.viewport.FitViewport;
@@ -41,19 +41,19 @@ public class Scene2DScreen extends BaseScreen {
     /** The actor that represent spikes. */
     private es.danirod.jddprototype.scene2d.SpikeActor spikes;
 
-    /** Textures used in this screen. */
-    private Texture playerTexture, spikeTexture;
+    /** Atlas with the textures used in this screen. */
+    private TextureAtlas atlas;
 
     /** Regions used in this screen. */
-    private TextureRegion spikeRegion;
+    private TextureRegion playerRegion, spikeRegion;
 
     public Scene2DScreen(MainGame game) {
         super(game);
 
-        // Load assets using new Texture instead of asset manager.
-        playerTexture = new Texture("player.png");
-        spikeTexture = new Texture("spike.png");
-        spikeRegion = new TextureRegion(spikeTexture, 0, 64, 128, 64);
+        // Load assets using new TextureAtlas instead of asset manager.
+        atlas = new TextureAtlas("gameplay.atlas");
+        playerRegion = atlas.findRegion("player");
+        spikeRegion = atlas.findRegion("spike");
     }
 
     @Override
@@ -62,7 +62,7 @@ public class Scene2DScreen extends BaseScreen {
         stage = new Stage(new FitViewport(640, 400));
 
         // Load the actors.
-        player = new PlayerActor(playerTexture);
+        player = new PlayerActor(playerRegion);
         spikes = new es.danirod.jddprototype.scene2d.SpikeActor(spikeRegion, 2100, 100, 500);
         player.setPosition(20, 100);
 
@@ -99,8 +99,7 @@ public class Scene2DScreen extends BaseScreen {
 
     @Override
     public void dispose() {
-        playerTexture.dispose();
-        spikeTexture.dispose();
+        atlas.dispose();
         stage.dispose();
     }
 }
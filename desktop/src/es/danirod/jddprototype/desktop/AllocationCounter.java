@@ -0,0 +1,90 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package es.danirod.jddprototype.desktop;
+
+import es.danirod.jddprototype.game.profiler.AllocationSampler;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Counts the bytes allocated by the current thread, using the allocation counters of the
+ * HotSpot JVM. This only works on desktop: Android doesn't have these counters. If the JVM
+ * doesn't support them, isSupported() returns false and every count is 0.
+ *
+ * Asking the JVM for the counter might allocate a few bytes by itself. Those bytes are
+ * measured once and subtracted, so that measuring code that allocates nothing gives 0.
+ */
+public class AllocationCounter implements AllocationSampler {
+
+	private final com.sun.management.ThreadMXBean bean;
+
+	/** Bytes allocated by a call to the JVM counter itself. */
+	private final long overhead;
+
+	/** How many times the JVM counter has been read. */
+	private long reads;
+
+	public AllocationCounter () {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+			bean = (com.sun.management.ThreadMXBean) threads;
+			bean.setThreadAllocatedMemoryEnabled(true);
+		} else {
+			bean = null;
+		}
+
+		// Do it a few times so that the JIT has compiled it.
+		long min = Long.MAX_VALUE;
+		for (int i = 0; i < 1000; i++) {
+			long start = readCounter();
+			min = Math.min(min, readCounter() - start);
+		}
+		overhead = min;
+	}
+
+	private long readCounter () {
+		return bean != null ? bean.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+	}
+
+	public boolean isSupported () {
+		return bean != null;
+	}
+
+	/** @return bytes allocated by the current thread, not counting the reads of the counter. */
+	@Override
+	public long allocatedBytes () {
+		if (bean == null) {
+			return 0;
+		}
+		// The overhead of this read is subtracted too, the counter is read before counting it.
+		long bytes = readCounter() - reads * overhead;
+		reads++;
+		return bytes;
+	}
+
+	/**
+	 * @param start  a value returned by allocatedBytes() before the measured code.
+	 * @return bytes allocated by the current thread since start.
+	 */
+	public long since (long start) {
+		return Math.max(0, allocatedBytes() - start);
+	}
+}
@@ -20,17 +20,58 @@ package es.danirod.jddprototype.desktop;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplication;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplicationConfiguration;
 import es.danirod.jddprototype.game.MainGame;
+import es.danirod.jddprototype.game.simulation.Replay;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * This is the launcher that is used to show the game in desktop computers. While the point of this
  * tutorial is not to run the game in desktop computers, it is always useful to debug things using
  * a desktop computer.
+ *
+ * Usage: DesktopLauncher [--replay file] [--speed times] [--audit-allocations]
+ *
+ * With --audit-allocations, the game screen logs every frame that allocates memory.
  */
 public class DesktopLauncher {
-	public static void main (String[] arg) {
+	public static void main (String[] arg) throws IOException {
 		LwjglApplicationConfiguration config = new LwjglApplicationConfiguration();
 		config.width = 640;
 		config.height = 360;
-		new LwjglApplication(new MainGame(), config);
+
+		MainGame game = new MainGame();
+		String replayPath = null;
+		int speed = 1;
+		for (int i = 0; i < arg.length; i++) {
+			if (arg[i].equals("--replay") && i + 1 < arg.length) {
+				replayPath = arg[++i];
+			} else if (arg[i].equals("--speed") && i + 1 < arg.length) {
+				speed = Integer.parseInt(arg[++i]);
+			} else if (arg[i].equals("--audit-allocations")) {
+				AllocationCounter counter = new AllocationCounter();
+				if (counter.isSupported()) {
+					game.setAllocationSampler(counter);
+				} else {
+					System.err.println("This JVM cannot count allocated bytes, no audit");
+				}
+			}
+		}
+		if (replayPath != null) {
+			game.setStartupReplay(readReplay(replayPath), speed);
+		}
+
+		new LwjglApplication(game, config);
+	}
+
+	static Replay readReplay (String path) throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(path));
+		try {
+			return Replay.read(in);
+		} finally {
+			in.close();
+		}
 	}
 }
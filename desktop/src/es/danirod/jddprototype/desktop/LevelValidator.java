@@ -0,0 +1,617 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package es.danirod.jddprototype.desktop;
+
+import com.badlogic.gdx.utils.IntArray;
+import es.danirod.jddprototype.game.Constants;
+import es.danirod.jddprototype.game.entities.EntityFactory;
+import es.danirod.jddprototype.game.entities.PlayerEntity;
+import es.danirod.jddprototype.game.level.LevelChunk;
+import es.danirod.jddprototype.game.level.LevelGenerator;
+import es.danirod.jddprototype.game.level.LevelSource;
+import es.danirod.jddprototype.game.level.StaticLevel;
+import es.danirod.jddprototype.game.simulation.GameSimulation;
+import es.danirod.jddprototype.game.simulation.Snapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Checks that levels can actually be beaten. For every level, it searches the ticks where the
+ * player has to jump: it runs the level without jumping until the player dies, then tries a
+ * jump on every tick before the death and repeats from every jump that takes the player
+ * further (a depth first search). The level is solvable if the player can survive until the
+ * end of the level.
+ *
+ * Trying a jump doesn't play the level again from the beginning. While an attempt runs, the
+ * state of the game is saved before its last ticks (see Snapshot), and every jump tried there
+ * continues from the state of the tick before it. A Snapshot doesn't have the contacts of the world, so
+ * a game continued from one can be slightly different from a game played from the beginning.
+ * Because of that, only the jumps that are actually searched are played from the beginning,
+ * and that is the game that counts. There are a lot less of them than jumps tried.
+ *
+ * Jumps that end in the same state are the same attempt, no matter when they were done: the
+ * rest of the game will be the same for all of them, so only the first one is searched. Any
+ * other jump is searched too, because a jump that does not go as far could be the only one
+ * that leaves time to jump the next obstacle.
+ *
+ * Before searching, it checks that the obstacles are not too close: the player has to land
+ * between two obstacles and jump again, so the floor between them has to be as long as a jump.
+ * The length of a jump is measured with the simulation, not guessed.
+ *
+ * It also tells the hardest jump of the solution: for every jump, the amount of consecutive
+ * ticks where jumping instead still beats the level (the timing window). A window of 1 or 2
+ * ticks is a level that is technically possible but not fun. Only the solution that was found
+ * is measured, and the search takes the first one that works, so an easier solution could
+ * exist. For example, the search happily jumps again in the air after falling off a platform,
+ * and a solution that does that depends a lot on the timing of the jump before it.
+ *
+ * Every attempt is an independent run of the physics simulation, so attempts are spread over
+ * a fork-join pool. Every attempt has its own simulation and its own Box2D world.
+ *
+ * Before the levels, it validates a small hand-made level that needs a precise jump, so a
+ * search that drops jumps it should not drop is noticed.
+ *
+ * Usage: LevelValidator [levels] [chunks] [firstSeed]
+ *        Seed 0 is the original hand-made level.
+ */
+public class LevelValidator {
+
+	/** Jumps are tried on this amount of ticks before the player dies. */
+	private static final int SEARCH_TICKS = 45;
+
+	/** How many chunks of every level are validated. */
+	private final int chunks;
+
+	/** The player has to survive this amount of ticks to reach the end of the level. */
+	private final int goalTicks;
+
+	/** Meters from taking off to landing, measured on a flat floor. */
+	private float jumpLength;
+
+	public LevelValidator (int chunks) {
+		this.chunks = chunks;
+		float distance = chunks * Constants.CHUNK_SIZE - 1.5f;
+		this.goalTicks = (int) Math.ceil(distance / Constants.PLAYER_SPEED / Constants.STEP_TIME);
+	}
+
+	public static void main (String[] arg) {
+		int levels = arg.length > 0 ? Integer.parseInt(arg[0]) : 100;
+		int chunks = arg.length > 1 ? Integer.parseInt(arg[1]) : 10;
+		long firstSeed = arg.length > 2 ? Long.parseLong(arg[2]) : Constants.LEVEL_SEED;
+
+		LevelValidator validator = new LevelValidator(chunks);
+		validator.measureJump();
+		System.out.printf("A jump is %.2f m long, obstacles need %.2f m of floor between them%n",
+				validator.jumpLength, validator.jumpLength - 1);
+		if (LevelGenerator.MIN_GAP < validator.jumpLength - 1) {
+			System.out.printf("LevelGenerator.MIN_GAP is %d m, too short for this jump%n", LevelGenerator.MIN_GAP);
+			System.exit(1);
+		}
+
+		ForkJoinPool pool = new ForkJoinPool();
+		long start = System.nanoTime();
+
+		Result check = pool.invoke(validator.new ValidateLevel(-1, createCheckLevel()));
+		if (!check.solvable) {
+			System.out.println("The hand-made check level is solvable, but " + check);
+			System.exit(1);
+		}
+
+		List<ValidateLevel> tasks = new ArrayList<ValidateLevel>();
+		for (int i = 0; i < levels; i++) {
+			tasks.add(validator.new ValidateLevel(firstSeed + i));
+		}
+		for (ValidateLevel task : tasks) {
+			pool.execute(task);
+		}
+
+		int solvable = 0;
+		for (ValidateLevel task : tasks) {
+			Result result = task.join();
+			System.out.println(result);
+			if (result.solvable) {
+				solvable++;
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		pool.shutdown();
+
+		System.out.printf("%d of %d levels solvable, %d chunks each, in %.2f s on %d threads%n",
+				solvable, levels, chunks, seconds, pool.getParallelism());
+		if (solvable < levels) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * A level that is known to be solvable, but not with the jump that goes further: jumping
+	 * off the platform as late as possible clears the first spike, but it lands too late to
+	 * jump the second one. A search that only keeps the best jump of every window fails here.
+	 */
+	private static StaticLevel createCheckLevel () {
+		StaticLevel level = new StaticLevel();
+		level.addFloor(0, 1000, 1);
+		level.addFloor(8, 5, 2);
+		level.addSpike(19, 1);
+		level.addSpike(26, 1);
+		return level;
+	}
+
+	/**
+	 * Jump on a flat floor and measure how far the player goes until it lands again.
+	 */
+	private void measureJump () {
+		GameSimulation simulation = new GameSimulation(new EntityFactory());
+		simulation.setLevel(new StaticLevel().addFloor(0, 100, 1));
+		simulation.start();
+		PlayerEntity player = simulation.getPlayer();
+
+		// Let the player settle on the floor before jumping.
+		for (int i = 0; i < 10; i++) {
+			simulation.tick();
+		}
+		float takeOff = player.getBody().getPosition().x;
+		simulation.pressJump();
+		simulation.tick();
+		while (player.isJumping() && player.isAlive()) {
+			simulation.tick();
+		}
+		jumpLength = player.getBody().getPosition().x - takeOff;
+		simulation.stop();
+		simulation.dispose();
+	}
+
+	/**
+	 * Look for two obstacles that are too close. The player is 1 meter wide, so the floor
+	 * between two obstacles has to be 1 meter shorter than a jump at least. A spike on top of
+	 * a platform is part of the platform, but the edge of the platform has to be climbed
+	 * before it, so it needs the same floor after that edge.
+	 *
+	 * @return where the second obstacle starts, or -1 if every gap is long enough.
+	 */
+	private float findShortGap (LevelSource level) {
+		List<float[]> obstacles = new ArrayList<float[]>();
+		for (int c = 0; c < chunks; c++) {
+			LevelChunk chunk = level.getChunk(c);
+			if (chunk == null) {
+				continue;
+			}
+			for (int f = 0; f < chunk.getFloorCount(); f++) {
+				if (chunk.getFloorY(f) > 1) {
+					float x = chunk.getFloorX(f);
+					obstacles.add(new float[] {x, x + chunk.getFloorWidth(f)});
+				}
+			}
+			for (int s = 0; s < chunk.getSpikeCount(); s++) {
+				// Spikes are placed by their center.
+				float x = chunk.getSpikeX(s) - 0.5f;
+				if (chunk.getSpikeY(s) <= 1) {
+					obstacles.add(new float[] {x, x + 1});
+					continue;
+				}
+				for (int f = 0; f < chunk.getFloorCount(); f++) {
+					float edge = chunk.getFloorX(f);
+					if (chunk.getFloorY(f) > 1 && edge <= x && x < edge + chunk.getFloorWidth(f)
+							&& x - edge < jumpLength - 1) {
+						return x;
+					}
+				}
+			}
+		}
+		Collections.sort(obstacles, new Comparator<float[]>() {
+			@Override
+			public int compare (float[] a, float[] b) {
+				return Float.compare(a[0], b[0]);
+			}
+		});
+
+		float previousEnd = Float.NEGATIVE_INFINITY;
+		for (float[] obstacle : obstacles) {
+			// Pieces of the same platform, cut by a chunk border, touch each other.
+			if (obstacle[0] > previousEnd && obstacle[0] - previousEnd < jumpLength - 1) {
+				return obstacle[0];
+			}
+			previousEnd = Math.max(previousEnd, obstacle[1]);
+		}
+		return -1;
+	}
+
+	/**
+	 * Play some level jumping at the given ticks.
+	 *
+	 * @param from       where to continue from, or null to play from the beginning. Jumps
+	 *                   before the tick of the snapshot are already part of it.
+	 * @param jumps      the ticks where the player has to jump, sorted.
+	 * @param state      if not null, gets the state of the player in the last tick it was alive.
+	 * @param snapshots  if not null, gets the state of the game before every tick after the
+	 *                   last jump, in the position tick % snapshots.length, so it ends up having
+	 *                   the last ticks before the player died.
+	 * @return how many ticks the player survived, goalTicks if the end was reached.
+	 */
+	private int evaluate (LevelSource level, Snapshot from, IntArray jumps, StringBuilder state, Snapshot[] snapshots) {
+		// A new world every time. A world that has played other games before doesn't always
+		// play the same jumps the same way: the order of its contacts depends on the bodies
+		// it had before, and a different order gives slightly different numbers.
+		GameSimulation simulation = new GameSimulation(new EntityFactory());
+		simulation.setLevel(level);
+		if (from == null) {
+			simulation.start();
+		} else {
+			simulation.start(from);
+		}
+		PlayerEntity player = simulation.getPlayer();
+		int next = 0, last = jumps.size > 0 ? jumps.peek() : -1;
+		while (next < jumps.size && jumps.get(next) < simulation.getTicks()) {
+			next++;
+		}
+		while (player.isAlive() && simulation.getTicks() < goalTicks) {
+			int tick = simulation.getTicks();
+			if (next < jumps.size && jumps.get(next) == tick) {
+				simulation.pressJump();
+				next++;
+			} else if (tick > last && snapshots != null) {
+				int index = tick % snapshots.length;
+				if (snapshots[index] == null) {
+					snapshots[index] = new Snapshot();
+				}
+				simulation.save(snapshots[index]);
+			}
+			if (state != null) {
+				// Rounded, so that tiny differences of the physics are not different states.
+				state.setLength(0);
+				state.append(tick + 1).append(' ')
+						.append(Math.round(player.getBody().getPosition().x * 100)).append(' ')
+						.append(Math.round(player.getBody().getPosition().y * 100)).append(' ')
+						.append(Math.round(player.getBody().getLinearVelocity().y * 100)).append(' ')
+						.append(player.isJumping());
+			}
+			simulation.tick();
+		}
+		int ticks = simulation.getTicks();
+		simulation.stop();
+		simulation.dispose();
+		return ticks;
+	}
+
+	/** Some jumps and how far they take the player. */
+	private static class Attempt {
+		final IntArray jumps;
+		final int ticks;
+
+		/** The state before the last ticks of this attempt, see evaluate(). */
+		final Snapshot[] snapshots;
+
+		Attempt (IntArray jumps, int ticks, Snapshot[] snapshots) {
+			this.jumps = jumps;
+			this.ticks = ticks;
+			this.snapshots = snapshots;
+		}
+	}
+
+	/** What is known about a level after validating it. */
+	public static class Result {
+		public final long seed;
+		public final boolean solvable;
+		public final IntArray jumps;
+		public final int ticks;
+
+		/** The window of the hardest jump of the solution in ticks and which jump it is, see windowOf(). */
+		public final int window, windowJump;
+
+		/** Where an obstacle too close to the previous one starts, or -1. */
+		public final float shortGap;
+
+		Result (long seed, Attempt best) {
+			this.seed = seed;
+			this.solvable = false;
+			this.jumps = best.jumps;
+			this.ticks = best.ticks;
+			this.window = 0;
+			this.windowJump = -1;
+			this.shortGap = -1;
+		}
+
+		Result (long seed, IntArray solution, int window, int windowJump) {
+			this.seed = seed;
+			this.solvable = true;
+			this.jumps = solution;
+			this.ticks = 0;
+			this.window = window;
+			this.windowJump = windowJump;
+			this.shortGap = -1;
+		}
+
+		Result (long seed, float shortGap) {
+			this.seed = seed;
+			this.solvable = false;
+			this.jumps = new IntArray();
+			this.ticks = 0;
+			this.window = 0;
+			this.windowJump = -1;
+			this.shortGap = shortGap;
+		}
+
+		@Override
+		public String toString () {
+			if (shortGap >= 0) {
+				return String.format("seed %d: UNSOLVABLE, the obstacle at x = %.1f m is too close to the previous one",
+						seed, shortGap);
+			}
+			if (solvable) {
+				return String.format("seed %d: solvable with %d jumps, hardest jump at x = %.1f m has a window of %d ticks (%.0f ms)",
+						seed, jumps.size, 1.5f + jumps.get(windowJump) * Constants.STEP_TIME * Constants.PLAYER_SPEED,
+						window, window * Constants.STEP_TIME * 1000);
+			}
+			return String.format("seed %d: UNSOLVABLE, best attempt dies at tick %d (x = %.1f m) after %d jumps",
+					seed, ticks, 1.5f + ticks * Constants.STEP_TIME * Constants.PLAYER_SPEED, jumps.size);
+		}
+	}
+
+	/** Validates a single level. */
+	private class ValidateLevel extends RecursiveTask<Result> {
+		private static final long serialVersionUID = 1L;
+
+		private final long seed;
+		private LevelSource level;
+
+		/** States that have already been searched. */
+		private final Set<String> searched = new HashSet<String>();
+
+		/** The attempt that went further. */
+		private Attempt best;
+
+		ValidateLevel (long seed) {
+			this.seed = seed;
+		}
+
+		ValidateLevel (long seed, LevelSource level) {
+			this.seed = seed;
+			this.level = level;
+		}
+
+		@Override
+		protected Result compute () {
+			if (level == null) {
+				level = seed == 0 ? StaticLevel.createDefault() : LevelGenerator.generateStatic(seed, chunks);
+			}
+			float shortGap = findShortGap(level);
+			if (shortGap >= 0) {
+				return new Result(seed, shortGap);
+			}
+
+			Attempt solution = search(new IntArray(), -1);
+			if (solution == null) {
+				return new Result(seed, best);
+			}
+
+			// Remove the jumps that are not needed, like a jump pressed while in the air.
+			IntArray jumps = new IntArray(solution.jumps);
+			for (int i = jumps.size - 1; i >= 0; i--) {
+				int jump = jumps.removeIndex(i);
+				if (evaluate(level, null, jumps, null, null) < goalTicks) {
+					jumps.insert(i, jump);
+				}
+			}
+
+			// Find the jump that has to be the most precise.
+			int window = Integer.MAX_VALUE, windowJump = -1;
+			for (int i = 0; i < jumps.size; i++) {
+				int jumpWindow = windowOf(jumps, i);
+				if (jumpWindow < window) {
+					window = jumpWindow;
+					windowJump = i;
+				}
+			}
+			return new Result(seed, jumps, window, windowJump);
+		}
+
+		/**
+		 * Play some jumps, then try a jump on every tick before the death and search from
+		 * every jump that clears the obstacle, until one of them reaches the end of the level.
+		 *
+		 * @param jumps     the ticks where the player jumps.
+		 * @param previous  how far the jumps went without the last one. If they don't go any
+		 *                  further when played from the beginning, there is nothing to search.
+		 * @return the attempt that reaches the end, or null if no jump can.
+		 */
+		private Attempt search (IntArray jumps, int previous) {
+			Snapshot[] snapshots = new Snapshot[SEARCH_TICKS];
+			Attempt attempt = new Attempt(jumps, evaluate(level, null, jumps, null, snapshots), snapshots);
+			if (best == null || attempt.ticks > best.ticks) {
+				best = attempt;
+			}
+			if (attempt.ticks >= goalTicks) {
+				return attempt;
+			}
+			if (attempt.ticks <= previous) {
+				return null;
+			}
+
+			// Try every tick in parallel.
+			List<TryJump> tries = new ArrayList<TryJump>();
+			int first = attempt.jumps.size > 0 ? attempt.jumps.peek() + 1 : 0;
+			for (int tick = Math.max(first, attempt.ticks - SEARCH_TICKS); tick < attempt.ticks; tick++) {
+				tries.add(new TryJump(level, attempt, tick));
+			}
+			invokeAll(tries);
+
+			// Every range of consecutive ticks that clears the obstacle is a window: where it
+			// starts, where it ends and how far its best jump goes.
+			List<int[]> windows = new ArrayList<int[]>();
+			int i = 0;
+			while (i < tries.size()) {
+				if (tries.get(i).getRawResult() <= attempt.ticks) {
+					i++;
+					continue;
+				}
+				int end = i, furthest = tries.get(i).getRawResult();
+				while (end + 1 < tries.size() && tries.get(end + 1).getRawResult() > attempt.ticks) {
+					end++;
+					furthest = Math.max(furthest, tries.get(end).getRawResult());
+				}
+				windows.add(new int[] {i, end, furthest});
+				i = end + 1;
+			}
+
+			// Search first the windows that take the player further: a jump that only dies a
+			// tick later at the same obstacle also "clears" it. Then, the wider windows first,
+			// they make levels that are more fun. Inside every window, the jumps in the middle
+			// are tried first: a jump at the edge of a window only works by a hair, and the
+			// ones in the middle still work if the jumps before them move a bit.
+			Collections.sort(windows, new Comparator<int[]>() {
+				@Override
+				public int compare (int[] a, int[] b) {
+					if (a[2] != b[2]) {
+						return b[2] - a[2];
+					}
+					return (b[1] - b[0]) - (a[1] - a[0]);
+				}
+			});
+			for (int[] range : windows) {
+				int middle = (range[0] + range[1]) / 2;
+				for (int k = 0; k < 2 * (range[1] - range[0] + 1); k++) {
+					int j = k % 2 == 0 ? middle + k / 2 : middle - (k + 1) / 2;
+					if (j < range[0] || j > range[1]) {
+						continue;
+					}
+					TryJump jump = tries.get(j);
+					if (searched.add(jump.state.toString())) {
+						Attempt found = search(jump.jumps, attempt.ticks);
+						if (found != null) {
+							return found;
+						}
+					}
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Count the consecutive ticks where some jump of a solution can be done and the level
+		 * is still beaten. Jumping at another tick lands at another tick, so the next jump is
+		 * searched again; the jumps before and after those two stay where they are.
+		 *
+		 * @param jumps  the ticks of the solution.
+		 * @param index  which jump.
+		 * @return the size of the window, 1 if only the tick of the solution works.
+		 */
+		private int windowOf (IntArray jumps, int index) {
+			int tick = jumps.get(index);
+			int min = index > 0 ? jumps.get(index - 1) + 1 : 0;
+			int max = index + 2 < jumps.size ? jumps.get(index + 2) - 2 : goalTicks - 1;
+
+			int window = 1;
+			for (int earlier = tick - 1; earlier >= min && canJumpAt(jumps, index, earlier); earlier--) {
+				window++;
+			}
+			for (int later = tick + 1; later <= max && canJumpAt(jumps, index, later); later++) {
+				window++;
+			}
+			return window;
+		}
+
+		/**
+		 * Can some jump of a solution be done at another tick, if the next jump is done at the
+		 * right time after it? The next jump can also be left out: some jumps are only needed
+		 * because the jump before them went wrong, like a jump that hits the corner of a
+		 * platform and has to jump again from there.
+		 */
+		private boolean canJumpAt (IntArray jumps, int index, int tick) {
+			IntArray moved = new IntArray(jumps);
+			moved.set(index, tick);
+			if (canJumpNext(moved, index)) {
+				return true;
+			}
+			if (index + 1 < moved.size) {
+				moved.removeIndex(index + 1);
+				return canJumpNext(moved, index);
+			}
+			return false;
+		}
+
+		/**
+		 * Can the jumps after some jump beat the level, if the next one is searched again?
+		 */
+		private boolean canJumpNext (IntArray jumps, int index) {
+			if (index + 1 == jumps.size) {
+				return evaluate(level, null, jumps, null, null) >= goalTicks;
+			}
+
+			// Play without the next jump to see where the next obstacle is reached.
+			IntArray alone = new IntArray();
+			alone.addAll(jumps, 0, index + 1);
+			Snapshot[] snapshots = new Snapshot[SEARCH_TICKS];
+			int ticks = evaluate(level, null, alone, null, snapshots);
+			if (ticks >= goalTicks) {
+				return true;
+			}
+
+			IntArray moved = new IntArray(jumps);
+			int last = index + 2 < jumps.size ? jumps.get(index + 2) : goalTicks;
+			for (int next = Math.max(jumps.get(index) + 1, ticks - SEARCH_TICKS); next < Math.min(ticks, last); next++) {
+				moved.set(index + 1, next);
+				Snapshot from = snapshots[(next - 1) % SEARCH_TICKS];
+				if (from != null && from.getTicks() != next - 1) {
+					from = null;
+				}
+				if (evaluate(level, from, moved, null, null) >= goalTicks) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/** Tries some attempt plus a jump at some tick. */
+	private class TryJump extends RecursiveTask<Integer> {
+		private static final long serialVersionUID = 1L;
+
+		final LevelSource level;
+		final Attempt parent;
+		final IntArray jumps;
+		final StringBuilder state = new StringBuilder();
+
+		TryJump (LevelSource level, Attempt parent, int tick) {
+			this.level = level;
+			this.parent = parent;
+			this.jumps = new IntArray(parent.jumps);
+			this.jumps.add(tick);
+		}
+
+		@Override
+		protected Integer compute () {
+			// Continue from the tick before the jump, not from the tick of the jump. A game that
+			// has just been continued finds the floor again on its first tick, and landing on the
+			// tick of a jump would stop the jump.
+			int tick = jumps.peek() - 1;
+			Snapshot from = tick >= 0 ? parent.snapshots[tick % SEARCH_TICKS] : null;
+			if (from != null && from.getTicks() != tick) {
+				from = null;
+			}
+			return evaluate(level, from, jumps, state, null);
+		}
+	}
+}
@@ -0,0 +1,283 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package es.danirod.jddprototype.desktop;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.utils.TimeUtils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import es.danirod.jddprototype.game.Constants;
+import es.danirod.jddprototype.game.GameScreen;
+import es.danirod.jddprototype.game.MainGame;
+import es.danirod.jddprototype.game.ScreenId;
+import es.danirod.jddprototype.game.entities.EntityFactory;
+import es.danirod.jddprototype.game.entities.PlayerEntity;
+import es.danirod.jddprototype.game.level.StaticLevel;
+import es.danirod.jddprototype.game.simulation.GameSimulation;
+import es.danirod.jddprototype.game.simulation.InputScript;
+import es.danirod.jddprototype.game.simulation.Replay;
+import es.danirod.jddprototype.game.simulation.TouchQueue;
+
+/**
+ * Plays many scripted games on the headless backend and checks that the gameplay stays inside
+ * its performance budgets. The whole game runs: MainGame loads the assets through the loading
+ * screen, and every game is played as a replay by GameScreen, going through show(), one
+ * render() per tick and hide(), like a user retrying again and again. OpenGL is replaced by
+ * NullGL20, so drawing costs almost nothing but every line of the screen still runs.
+ *
+ * Every script is played a few times before measuring. The first time lets the entity pool
+ * grow as much as these games need (later games run further and need more entities), and
+ * every time warms up the JIT. The JIT allocates some memory in the thread that makes a method
+ * hot, so the games are played again until a whole pass allocates nothing. Then they are
+ * played once more and measured: nothing should be created anymore, so the number of bodies
+ * must not grow and the frames must not allocate a single byte.
+ *
+ * It also checks that a touch makes the player jump in the same frame, if that frame has a
+ * tick: touches are stamped when the frame begins, which is after the ticks of that frame in
+ * the clock of the simulation, and they must not wait for the next frame because of that.
+ *
+ * If some budget is broken, the process exits with an error. Run it with desktop:perfCheck, it
+ * is also part of desktop:check.
+ *
+ * Usage: PerformanceCheck [games] [maxTicks] [seed]
+ */
+public class PerformanceCheck extends ApplicationAdapter {
+
+	/**
+	 * No tick can take longer than this. This is CPU time used by the thread of the game: the
+	 * wall time also counts the time taken by the level generator thread and by any other
+	 * process of the machine, which on a busy machine is far longer than the tick itself.
+	 */
+	private static final double MAX_TICK_MILLIS = 4;
+
+	/** Bytes that the measured frames can allocate, all together. */
+	private static final long MAX_BYTES = 0;
+
+	/** Give up warming up after this many passes. The measured pass will tell what is wrong. */
+	private static final int MAX_WARM_UP_PASSES = 5;
+
+	/** Touches done by checkTouches(). */
+	private static final int TOUCHES = 25;
+
+	private final int games, maxTicks;
+
+	private final long seed;
+
+	private final AllocationCounter allocations = new AllocationCounter();
+
+	private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+	/** Frames played by the last pass, the bytes they allocated and their slowest times. */
+	private int frames;
+	private long allocated;
+	private long slowestCpu, slowestWall;
+
+	/** How many games left some body active after hide(). */
+	private int leaks;
+
+	private boolean failed;
+
+	public PerformanceCheck (int games, int maxTicks, long seed) {
+		this.games = games;
+		this.maxTicks = maxTicks;
+		this.seed = seed;
+	}
+
+	public static void main (String[] arg) {
+		int games = arg.length > 0 ? Integer.parseInt(arg[0]) : 100;
+		int maxTicks = arg.length > 1 ? Integer.parseInt(arg[1]) : 60 * 60;
+		long seed = arg.length > 2 ? Long.parseLong(arg[2]) : 0;
+		new HeadlessApplication(new PerformanceCheck(games, maxTicks, seed),
+				new HeadlessApplicationConfiguration());
+	}
+
+	/**
+	 * Everything happens here, inside the thread of the headless application. An exception
+	 * would only kill that thread and the process would end fine, so catch everything.
+	 */
+	@Override
+	public void create () {
+		try {
+			run();
+		} catch (Throwable e) {
+			e.printStackTrace();
+			failed = true;
+		}
+		if (failed) {
+			System.out.println("Performance budgets broken");
+			System.exit(1);
+		}
+		Gdx.app.exit();
+	}
+
+	private void run () {
+		Gdx.gl = Gdx.gl20 = new NullGL20();
+		Gdx.app.setLogLevel(Application.LOG_ERROR);
+
+		// Start the game like a launcher would and wait until the menu is shown.
+		MainGame game = new MainGame();
+		game.create();
+		for (int i = 0; !game.getScreens().isCreated(ScreenId.MENU); i++) {
+			if (i == 10000) {
+				throw new IllegalStateException("The menu was never shown");
+			}
+			game.render();
+		}
+		game.finishBackgroundLoading();
+		GameScreen screen = (GameScreen) game.getScreens().get(ScreenId.GAME);
+
+		// The same kind of random touches used by SimulationLauncher.
+		RandomXS128 random = new RandomXS128(seed);
+		Replay[] replays = new Replay[games];
+		for (int index = 0; index < games; index++) {
+			InputScript script = new InputScript();
+			int tick = 0;
+			while (tick < maxTicks) {
+				tick += 10 + random.nextInt(80);
+				int duration = 1 + random.nextInt(20);
+				script.touch(tick, duration);
+				tick += duration;
+			}
+			replays[index] = new Replay(Constants.LEVEL_SEED, maxTicks, script);
+		}
+		// Warm up until the JIT is quiet. The bodies of every pass are needed, later passes
+		// could need more entities than the first one if something is not reused.
+		int warmBodies = 0, passes = 0;
+		do {
+			warmBodies = Math.max(warmBodies, play(game, screen, replays));
+			passes++;
+		} while (allocated > MAX_BYTES && passes < MAX_WARM_UP_PASSES);
+		int maxBodies = play(game, screen, replays);
+		game.dispose();
+
+		System.out.printf("%d games, %d warm up passes, %d measured ticks, slowest wall time %.3f ms%n",
+				games, passes, frames, slowestWall / 1e6);
+		if (threads.isCurrentThreadCpuTimeSupported()) {
+			check(String.format("slowest tick: %.3f ms (budget %.3f ms)", slowestCpu / 1e6, MAX_TICK_MILLIS),
+					slowestCpu / 1e6 <= MAX_TICK_MILLIS);
+		} else {
+			System.out.println("SKIP slowest tick: this JVM cannot measure the CPU time of a thread");
+		}
+		if (allocations.isSupported()) {
+			check(String.format("allocated: %d bytes in %d frames (budget %d bytes)", allocated, frames,
+					MAX_BYTES), allocated <= MAX_BYTES);
+		} else {
+			System.out.println("SKIP allocations: this JVM cannot count allocated bytes");
+		}
+		check(String.format("bodies after retries: %d, after warm up: %d", maxBodies, warmBodies),
+				maxBodies <= warmBodies);
+		check(String.format("games leaking active bodies: %d", leaks), leaks == 0);
+
+		checkTouches(random);
+	}
+
+	/**
+	 * Touch the screen while the player is on the floor, like TouchQueue does when the user
+	 * touches it, and check that the player jumps during the same update(). The frames take
+	 * random times, so that the simulation is behind real time by a different amount every
+	 * frame, like in a real game.
+	 */
+	private void checkTouches (RandomXS128 random) {
+		GameSimulation simulation = new GameSimulation(new EntityFactory());
+		simulation.setLevel(new StaticLevel().addFloor(0, 1000, 1));
+		TouchQueue touches = new TouchQueue();
+		simulation.listen(touches);
+		simulation.start();
+		PlayerEntity player = simulation.getPlayer();
+
+		int touched = 0, sameFrame = 0;
+		for (int frame = 0; touched < TOUCHES && frame < 100 * TOUCHES; frame++) {
+			float delta = Constants.STEP_TIME * (0.5f + random.nextFloat());
+			// Let the player settle on the floor before the first touch.
+			boolean touch = frame > 10 && !player.isJumping();
+			if (touch) {
+				long time = TimeUtils.nanoTime();
+				touches.add(time, InputScript.JUMP);
+				touches.add(time, InputScript.DOWN);
+				touches.add(time, InputScript.UP);
+			}
+			int ticks = simulation.update(delta);
+			if (touch && ticks > 0) {
+				touched++;
+				if (player.isJumping()) {
+					sameFrame++;
+				}
+			}
+		}
+		simulation.listen(null);
+		simulation.stop();
+		simulation.dispose();
+
+		check(String.format("touches that jump in the same frame: %d of %d", sameFrame, touched),
+				touched == TOUCHES && sameFrame == touched);
+	}
+
+	/**
+	 * Play every replay in the game screen, one tick per frame, and measure the frames.
+	 *
+	 * @return the maximum amount of bodies in the world after any game.
+	 */
+	private int play (MainGame game, GameScreen screen, Replay[] replays) {
+		frames = 0;
+		allocated = 0;
+		slowestCpu = slowestWall = 0;
+		int maxBodies = 0;
+		for (Replay replay : replays) {
+			GameSimulation simulation = screen.getSimulation();
+			int activeBaseline = simulation.getTracker().getActiveBodies();
+			screen.playReplay(replay, 1);
+			game.showScreen(ScreenId.GAME);
+
+			while (simulation.getPlayer().isAlive() && simulation.getTicks() < maxTicks) {
+				// The clocks are read outside of the allocation counter, in case they allocate.
+				long cpu = threads.getCurrentThreadCpuTime();
+				long wall = System.nanoTime();
+				long bytes = allocations.allocatedBytes();
+				screen.render(Constants.STEP_TIME);
+				allocated += allocations.since(bytes);
+				wall = System.nanoTime() - wall;
+				cpu = threads.getCurrentThreadCpuTime() - cpu;
+				slowestCpu = Math.max(slowestCpu, cpu);
+				slowestWall = Math.max(slowestWall, wall);
+				frames++;
+			}
+
+			// Leave the screen like the game does when the player dies. hide() has to park
+			// every body again.
+			game.showScreen(ScreenId.GAME_OVER);
+			if (simulation.getTracker().getActiveBodies() != activeBaseline) {
+				leaks++;
+			}
+			maxBodies = Math.max(maxBodies, simulation.getWorld().getBodyCount());
+		}
+		return maxBodies;
+	}
+
+	private void check (String message, boolean passed) {
+		System.out.println((passed ? "PASS " : "FAIL ") + message);
+		failed |= !passed;
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * This file is part of Jump Don't Die
+ * Copyright (C) 2015 Dani Rodríguez <danirod@outlook.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.danirod.jddprototype.desktop;
+
+import com.badlogic.gdx.math.RandomXS128;
+import es.danirod.jddprototype.game.entities.EntityFactory;
+import es.danirod.jddprototype.game.level.LevelGenerator;
+import es.danirod.jddprototype.game.level.LevelSource;
+import es.danirod.jddprototype.game.simulation.GameSimulation;
+import es.danirod.jddprototype.game.simulation.InputScript;
+import es.danirod.jddprototype.game.simulation.Replay;
+
+import java.io.IOException;
+
+/**
+ * This launcher runs the game without any window, graphics or sounds, as fast as the CPU allows.
+ * Every run uses a random but reproducible script of touches. Use it for balancing the level,
+ * for checking that a change didn't break the gameplay, or for load testing the simulation.
+ *
+ * It can also play a replay saved by the game, to reproduce it without graphics.
+ *
+ * Usage: SimulationLauncher [runs] [maxTicks] [seed]
+ *        SimulationLauncher --replay file
+ */
+public class SimulationLauncher {
+	public static void main (String[] arg) throws IOException {
+		if (arg.length > 1 && arg[0].equals("--replay")) {
+			replay(DesktopLauncher.readReplay(arg[1]));
+			return;
+		}
+
+		int runs = arg.length > 0 ? Integer.parseInt(arg[0]) : 1000;
+		int maxTicks = arg.length > 1 ? Integer.parseInt(arg[1]) : 60 * 60;
+		long seed = arg.length > 2 ? Long.parseLong(arg[2]) : 0;
+
+		// No backend is required. The world loads the Box2D natives by itself.
+		GameSimulation simulation = new GameSimulation(new EntityFactory());
+		InputScript script = new InputScript();
+		RandomXS128 random = new RandomXS128(seed);
+
+		long totalTicks = 0;
+		int bestTicks = 0, survivors = 0;
+		long start = System.nanoTime();
+		for (int run = 0; run < runs; run++) {
+			// Touch the screen at random moments for a random amount of time.
+			script.clear();
+			int tick = 0;
+			while (tick < maxTicks) {
+				tick += 10 + random.nextInt(80);
+				int duration = 1 + random.nextInt(20);
+				script.touch(tick, duration);
+				tick += duration;
+			}
+
+			simulation.start();
+			int ticks = simulation.run(script, maxTicks);
+			if (simulation.getPlayer().isAlive()) {
+				survivors++;
+			}
+			simulation.stop();
+
+			totalTicks += ticks;
+			bestTicks = Math.max(bestTicks, ticks);
+		}
+		long elapsed = System.nanoTime() - start;
+		String poolStats = simulation.getPool().toString();
+		simulation.dispose();
+
+		double seconds = elapsed / 1e9;
+		System.out.printf("%d runs, %d ticks in %.3f s%n", runs, totalTicks, seconds);
+		System.out.printf("%.1f runs/s, %.0f ticks/s%n", runs / seconds, totalTicks / seconds);
+		System.out.printf("survivors: %d, best run: %d ticks, average run: %.1f ticks%n",
+				survivors, bestTicks, totalTicks / (double) runs);
+		System.out.println("entity pool: " + poolStats);
+	}
+
+	/**
+	 * Play a replay as fast as possible and tell how it ended.
+	 */
+	private static void replay (Replay replay) {
+		// Play the replay in the same level where it was recorded.
+		LevelSource level = LevelGenerator.forSeed(replay.getSeed());
+		if (level instanceof LevelGenerator) {
+			((LevelGenerator) level).setWaitForChunks(true);
+		}
+		GameSimulation simulation = new GameSimulation(new EntityFactory(), level);
+		simulation.start();
+		long start = System.nanoTime();
+		int ticks = simulation.run(replay.getScript(), replay.getTicks());
+		long elapsed = System.nanoTime() - start;
+
+		System.out.printf("replayed %d of %d ticks in %.3f ms%n", ticks, replay.getTicks(), elapsed / 1e6);
+		System.out.printf("player %s at x=%.3f m%n", simulation.getPlayer().isAlive() ? "alive" : "dead",
+				simulation.getPlayer().getBody().getPosition().x);
+		simulation.stop();
+		simulation.dispose();
+		if (level instanceof LevelGenerator) {
+			((LevelGenerator) level).dispose();
+		}
+	}
+}